@@ -0,0 +1,78 @@
+import benchmarks.ConversionTargets;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exposes the package-private conversions of {@link Main} to the benchmarks.
+ */
+public class BenchmarkTargets implements ConversionTargets {
+
+    private static final Map<Integer, ParallelTransform> TRANSFORMS = new ConcurrentHashMap<>();
+
+    @Override
+    public Object marshalRoutes(String body) throws IOException {
+        return Main.marshalRoutes(body);
+    }
+
+    @Override
+    public Object marshalRoutes(byte[] body) throws IOException {
+        return Main.marshalRoutes(body);
+    }
+
+    @Override
+    public List<?> routes(Object routesList) {
+        return ((RoutesList) routesList).routes();
+    }
+
+    @Override
+    public Object convertQueuesToEndpoints(String body) throws IOException {
+        return Main.convertQueuesToEndpoints(body, "dev");
+    }
+
+    @Override
+    public Object convertEndpointsToQueues(byte[] body) throws IOException {
+        return Main.convertEndpointsToQueues(body, "dev");
+    }
+
+    @Override
+    public Object convertRuleToEndpointParts(String body) throws IOException {
+        return Main.convertRuleToEndpointParts(body);
+    }
+
+    @Override
+    public Object convertRuleToHeaders(byte[] body) throws IOException {
+        return Main.convertRuleToHeaders(body);
+    }
+
+    @Override
+    public Object convertEndpointPattern(String body) throws IOException {
+        return Main.convertEndpointPattern(body);
+    }
+
+    @Override
+    public Object cleanupEndpointPattern(String body) throws IOException {
+        return Main.cleanupEndpointPattern(body);
+    }
+
+    @Override
+    public Object switchTargetsToQualifierPattern(String body) throws IOException {
+        return Main.switchTargetsToQualifierPattern(body);
+    }
+
+    @Override
+    public byte[] encodeForm(Object route) {
+        return FormEncoder.encode((Route) route);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<?> transformAll(List<?> routes, int parallelism) {
+        return TRANSFORMS.computeIfAbsent(parallelism,
+                        threads -> new ParallelTransform(threads, ParallelTransform.DEFAULT_THRESHOLD))
+                .applyAll((List<Route>) routes, RouteTransforms.ENDPOINT_PATTERN);
+    }
+
+}
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The code under benchmark. The tool lives in the default package, which JMH benchmarks cannot
+ * reference, so it is reached through this interface, implemented by {@code BenchmarkTargets} in
+ * the default package. Route and RoutesList values are passed around as Object for the same reason.
+ */
+public interface ConversionTargets {
+
+    static ConversionTargets load() {
+        try {
+            return (ConversionTargets) Class.forName("BenchmarkTargets").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the benchmark targets.", e);
+        }
+    }
+
+    Object marshalRoutes(String body) throws IOException;
+
+    Object marshalRoutes(byte[] body) throws IOException;
+
+    List<?> routes(Object routesList);
+
+    Object convertQueuesToEndpoints(String body) throws IOException;
+
+    Object convertEndpointsToQueues(byte[] body) throws IOException;
+
+    Object convertRuleToEndpointParts(String body) throws IOException;
+
+    Object convertRuleToHeaders(byte[] body) throws IOException;
+
+    Object convertEndpointPattern(String body) throws IOException;
+
+    Object cleanupEndpointPattern(String body) throws IOException;
+
+    Object switchTargetsToQualifierPattern(String body) throws IOException;
+
+    byte[] encodeForm(Object route);
+
+    /**
+     * Applies the endpoint pattern conversion to parsed routes on the given number of threads.
+     */
+    List<?> transformAll(List<?> routes, int parallelism);
+
+}
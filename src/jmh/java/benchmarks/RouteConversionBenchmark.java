@@ -0,0 +1,111 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-table cost of marshalling a /routes payload, of every conversion, and of building the
+ * /updateroute bodies. Run through {@link BenchmarkRunner} to get allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RouteConversionBenchmark {
+
+    private static final ConversionTargets TARGETS = ConversionTargets.load();
+
+    @Param({"1000", "10000", "100000"})
+    public int routes;
+
+    private String body;
+    private byte[] bytes;
+    private List<?> parsedRoutes;
+
+    @Setup
+    public void createRoutes() throws IOException {
+        body = SyntheticRoutes.payload(routes, 42);
+        bytes = body.getBytes(StandardCharsets.UTF_8);
+        parsedRoutes = TARGETS.routes(TARGETS.marshalRoutes(body));
+    }
+
+    @Benchmark
+    public Object marshalRoutesString() throws IOException {
+        return TARGETS.marshalRoutes(body);
+    }
+
+    @Benchmark
+    public Object marshalRoutesBytes() throws IOException {
+        return TARGETS.marshalRoutes(bytes);
+    }
+
+    @Benchmark
+    public Object convertQueuesToEndpoints() throws IOException {
+        return TARGETS.convertQueuesToEndpoints(body);
+    }
+
+    @Benchmark
+    public Object convertEndpointsToQueues() throws IOException {
+        return TARGETS.convertEndpointsToQueues(bytes);
+    }
+
+    @Benchmark
+    public Object convertRuleToEndpointParts() throws IOException {
+        return TARGETS.convertRuleToEndpointParts(body);
+    }
+
+    @Benchmark
+    public Object convertRuleToHeaders() throws IOException {
+        return TARGETS.convertRuleToHeaders(bytes);
+    }
+
+    @Benchmark
+    public Object convertEndpointPattern() throws IOException {
+        return TARGETS.convertEndpointPattern(body);
+    }
+
+    @Benchmark
+    public Object cleanupEndpointPattern() throws IOException {
+        return TARGETS.cleanupEndpointPattern(body);
+    }
+
+    @Benchmark
+    public Object switchTargetsToQualifierPattern() throws IOException {
+        return TARGETS.switchTargetsToQualifierPattern(body);
+    }
+
+    @Benchmark
+    public Object transformSequential() {
+        return TARGETS.transformAll(parsedRoutes, 1);
+    }
+
+    @Benchmark
+    public Object transformParallel() {
+        return TARGETS.transformAll(parsedRoutes, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public void encodeForm(Blackhole blackhole) {
+        for (var route : parsedRoutes) {
+            blackhole.consume(TARGETS.encodeForm(route));
+        }
+    }
+
+}
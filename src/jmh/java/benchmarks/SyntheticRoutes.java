@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds /routes payloads of any size with the rule and queue shapes found in the real route
+ * tables: header based rules, endpoint rules with and without qualifiers, the backwards compatible
+ * endpoint pairs, and a mix of emx-to queues and endpoints.
+ */
+final class SyntheticRoutes {
+
+    private static final List<String> SYSTEMS = List.of(
+            "cars", "scms", "cfis", "cmiss", "crm-aveng", "crm-central-america", "ews-payment", "mls", "hr-core");
+    private static final List<String> ENVIRONMENTS = List.of("dev", "test", "stage", "prod");
+    private static final List<String> QUALIFIERS = List.of("vendor", "delta", "raw", "cmiss", "skim");
+    private static final List<String> DATATYPES = List.of("vendor", "person", "unit", "payment");
+
+    private SyntheticRoutes() {
+    }
+
+    static String payload(int size, long seed) {
+        var random = new Random(seed);
+        var json = new StringBuilder(size * 400);
+        json.append("{\"routesList\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"uuid\":\"").append(String.format("%08x-route-%d", seed, i))
+                    .append("\",\"name\":\"Route ").append(i)
+                    .append("\",\"rule\":\"").append(escape(rule(random)))
+                    .append("\",\"description\":\"Synthetic route ").append(i)
+                    .append("\",\"enabled\":").append(random.nextInt(10) > 0)
+                    .append(",\"queues\":[");
+            int queues = 1 + random.nextInt(4);
+            for (int q = 0; q < queues; q++) {
+                if (q > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(queue(random)).append('"');
+            }
+            json.append("],\"createdDate\":\"2023-03-28\",\"modifiedDate\":\"2023-03-28\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String rule(Random random) {
+        var system = pick(random, SYSTEMS);
+        var env = pick(random, ENVIRONMENTS);
+        var qualifier = pick(random, QUALIFIERS);
+        return switch (random.nextInt(6)) {
+            case 0 -> "emxSourceSystem==\"" + system + "\" && emxSourceEnvironment==\"" + env
+                    + "\" && emxDatatype==\"" + pick(random, DATATYPES) + "\"";
+            case 1 -> "endpoint==\"" + system + "#" + env + "/" + qualifier + "\"";
+            case 2 -> "endpoint==\"" + system + "#" + env + "/" + qualifier + "\" && \n"
+                    + "(objectType==\"lds.notification.unit.UnitStatusChange\" \n"
+                    + " || objectType==\"lds.notification.unit.UnitChange\" \n"
+                    + " || objectType==\"lds.notification.unit.UnitAssociationStatusChange\")";
+            case 3 -> "(endpoint==\"" + system + "/" + qualifier + "#" + env + "\" || endpoint==\""
+                    + system + "#" + env + "/" + qualifier + "\")";
+            case 4 -> "(objectType==\"Person\" || objectType==\"Unit\") && endpoint==\"" + system + "#" + env + "\"";
+            default -> "endpoint==\"" + system + "#" + env + "\" && s3.object.path==\"joe/bob\"";
+        };
+    }
+
+    private static String queue(Random random) {
+        var system = pick(random, SYSTEMS);
+        var env = pick(random, ENVIRONMENTS);
+        return switch (random.nextInt(7)) {
+            case 0 -> "emx-to-" + system + "-" + env;
+            case 1 -> "emx-trash";
+            case 2 -> "emx-to-archive-core";
+            case 3 -> "emx-to-emx-healthcheck";
+            case 4 -> system + "#" + env;
+            case 5 -> system + "#" + env + "/" + pick(random, QUALIFIERS);
+            default -> system + "/" + pick(random, QUALIFIERS) + "#" + env;
+        };
+    }
+
+    private static String pick(Random random, List<String> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
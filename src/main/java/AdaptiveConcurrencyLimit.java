@@ -0,0 +1,81 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AIMD concurrency limit. Each successful, fast response raises the limit by roughly one per
+ * round trip; a throttled or failed response, or one much slower than usual, halves it. What is
+ * usual is a moving average of the latency of each kind of request, e.g. PUT /updateroutes, so a
+ * batch update is not compared with a single one and a fast GET's jitter is smoothed out. Callers
+ * block in {@link #acquire()} while the limit is reached.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_WEIGHT = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private final Map<String, Double> baselineNanos = new HashMap<>();
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                    "Limits must satisfy 1 <= min <= initial <= max. Min: " + minLimit
+                            + " Initial: " + initialLimit + " Max: " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Releases a permit taken by {@link #acquire()} and feeds the outcome back into the limit.
+     *
+     * @param kind the kind of request, e.g. its method and path; its latency is only compared with
+     *             earlier requests of the same kind
+     * @param overloaded whether the server throttled, errored or could not be reached
+     * @param latencyNanos how long the call took
+     */
+    public synchronized void release(String kind, boolean overloaded, long latencyNanos) {
+        inFlight--;
+        long now = System.nanoTime();
+        boolean congested = overloaded;
+        if (!overloaded) {
+            var baseline = baselineNanos.get(kind);
+            congested = baseline != null && latencyNanos > baseline * LATENCY_TOLERANCE;
+            baselineNanos.put(kind, baseline == null
+                    ? latencyNanos
+                    : baseline + BASELINE_WEIGHT * (latencyNanos - baseline));
+        }
+        if (congested) {
+            // Only back off once per round trip, otherwise one burst of errors collapses the limit.
+            if (now - lastDecrease > latencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecrease = now;
+            }
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public int maxLimit() {
+        return maxLimit;
+    }
+
+}
@@ -0,0 +1,196 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One NDJSON line per route a run sent: when, the uuid and name, the before and after value of
+ * every changed field, the status code and the latency of the request, and the message of a
+ * failure. Update workers only queue the entry; a writer thread of its own turns entries into JSON
+ * and writes them in batches, flushing after each batch so the log can be followed during the run.
+ * The log rolls over to a new numbered file once a file holds rotateBytes of JSON, and can be
+ * gzipped.
+ */
+public final class AuditLog implements Closeable {
+
+    /**
+     * @param rotateBytes how much JSON a file holds before the log moves on to the next one
+     * @param gzip whether the files are gzipped; lines are still flushed after every batch
+     */
+    public record Options(long rotateBytes, boolean gzip) {
+
+        public static final Options DEFAULT = new Options(64L << 20, false);
+
+    }
+
+    private record Entry(Route before, Route after, UpdateResult result, long latencyNanos, long time) {
+    }
+
+    private static final int QUEUE_SIZE = 8_192;
+    private static final int BATCH_SIZE = 512;
+    private static final Entry END = new Entry(null, null, null, 0, 0);
+
+    private final ObjectMapper mapper;
+    private final Path directory;
+    private final String name;
+    private final Options options;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final List<Path> files = new ArrayList<>();
+    private final Thread writer;
+    private OutputStream out;
+    private long written;
+    private volatile IOException failure;
+
+    private AuditLog(ObjectMapper mapper, Path directory, String name, Options options) {
+        this.mapper = mapper;
+        this.directory = directory;
+        this.name = name;
+        this.options = options;
+        this.writer = new Thread(this::writeEntries, "audit-" + name);
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts a log written to name-0001.ndjson, name-0002.ndjson, ... in the directory, with .gz
+     * appended when gzipped.
+     */
+    public static AuditLog open(ObjectMapper mapper, Path directory, String name, Options options) throws IOException {
+        var log = new AuditLog(mapper, directory, name, options);
+        log.nextFile();
+        log.writer.start();
+        return log;
+    }
+
+    /**
+     * Queues the outcome of an update, only blocking when the writer has fallen a whole queue behind.
+     *
+     * @param before the route before the update, or null when it is not known
+     */
+    public void record(Route before, Route after, UpdateResult result, long latencyNanos) {
+        try {
+            queue.put(new Entry(before, after, result, latencyNanos, System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("There was an interruption while logging route " + after.uuid() + ".");
+        }
+    }
+
+    /**
+     * The files written so far, in order.
+     */
+    public synchronized List<Path> files() {
+        return List.copyOf(files);
+    }
+
+    /**
+     * Writes the entries still queued and closes the current file.
+     *
+     * @throws IOException when the log could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            queue.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("There was an interruption while closing the audit log.");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeEntries() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        boolean open = true;
+        while (open) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            try {
+                for (var entry : batch) {
+                    if (entry == END) {
+                        open = false;
+                        break;
+                    }
+                    if (failure == null) {
+                        write(entry);
+                    }
+                }
+                if (failure == null) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Keep taking entries so the update workers never block on a broken log
+                failure = e;
+            }
+            batch.clear();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        var line = mapper.createObjectNode()
+                .put("time", Instant.ofEpochMilli(entry.time()).toString())
+                .put("uuid", entry.after().uuid())
+                .put("name", entry.after().name())
+                .put("statusCode", entry.result().statusCode())
+                .put("latencyMillis", Math.round(entry.latencyNanos() / 1_000.0) / 1_000.0);
+        if (entry.before() == null) {
+            line.put("restored", true);
+        } else {
+            var changes = line.putObject("changes");
+            var change = new RouteChange(entry.before(), entry.after());
+            for (var field : change.changedFields()) {
+                var values = changes.putObject(field);
+                values.set("before", mapper.valueToTree(RouteChange.value(entry.before(), field)));
+                values.set("after", mapper.valueToTree(RouteChange.value(entry.after(), field)));
+            }
+        }
+        if (!entry.result().succeeded()) {
+            line.put("message", entry.result().message());
+        }
+        var bytes = mapper.writeValueAsBytes(line);
+        out.write(bytes);
+        out.write('\n');
+        written += bytes.length + 1;
+        if (written >= options.rotateBytes()) {
+            out.close();
+            nextFile();
+        }
+    }
+
+    private void nextFile() throws IOException {
+        Path file;
+        synchronized (this) {
+            file = directory.resolve(String.format("%s-%04d.ndjson%s", name, files.size() + 1, options.gzip() ? ".gz" : ""));
+            files.add(file);
+        }
+        var stream = Files.newOutputStream(file);
+        out = options.gzip()
+                ? new GZIPOutputStream(new BufferedOutputStream(stream, 1 << 16), 1 << 16, true)
+                : new BufferedOutputStream(stream, 1 << 16);
+        written = 0;
+    }
+
+}
@@ -0,0 +1,53 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes /updateroutes bodies and reads their responses. A batch is sent as {"routesList":[...]},
+ * with the same fields /updateroute takes per route, and answered with
+ * {"results":[{"uuid":..., "statusCode":..., "message":...}]}.
+ */
+final class BatchCodec {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+    private BatchCodec() {
+    }
+
+    static byte[] encode(List<Route> routes) {
+        var body = MAPPER.createObjectNode();
+        var routesList = body.putArray("routesList");
+        for (var route : routes) {
+            var node = routesList.addObject()
+                    .put("uuid", route.uuid())
+                    .put("name", route.name())
+                    .put("rule", route.rule())
+                    .put("description", route.description())
+                    .put("enabled", route.enabled());
+            route.queues().forEach(node.putArray("queues")::add);
+        }
+        try {
+            return MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the result per uuid, without route names
+     */
+    static Map<String, UpdateResult> decodeResults(String body) throws JsonProcessingException {
+        Map<String, UpdateResult> results = new HashMap<>();
+        for (var result : MAPPER.readTree(body).path("results")) {
+            var uuid = result.path("uuid").asText();
+            results.put(uuid, new UpdateResult(uuid, null,
+                    result.path("statusCode").asInt(UpdateResult.NO_RESPONSE), result.path("message").asText("")));
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,75 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The updates a run would send, worked out without sending any. Written as a compact diff: a line
+ * per route that would change, followed by an indented old -> new line per changed field.
+ */
+public class ChangePlan {
+
+    private final List<RouteChange> changes = new ArrayList<>();
+    private final List<Route> restores = new ArrayList<>();
+    private final Map<String, Integer> fieldCounts = new TreeMap<>();
+    private int unchanged;
+
+    /**
+     * Adds the change if it changes anything, otherwise counts the route as unchanged.
+     */
+    public void add(RouteChange change) {
+        if (!change.changed()) {
+            unchanged++;
+            return;
+        }
+        changes.add(change);
+        for (var field : change.changedFields()) {
+            fieldCounts.merge(field, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Adds a route that would be sent as it is, without knowing its current state.
+     */
+    public void add(Route route) {
+        restores.add(route);
+    }
+
+    public int size() {
+        return changes.size() + restores.size();
+    }
+
+    public String summary() {
+        var summary = new StringBuilder()
+                .append(size()).append(" of ").append(size() + unchanged).append(" routes would change");
+        if (!fieldCounts.isEmpty()) {
+            summary.append(" (");
+            fieldCounts.forEach((field, count) -> summary.append(field).append(": ").append(count).append(", "));
+            summary.setLength(summary.length() - 2);
+            summary.append(')');
+        }
+        return summary.toString();
+    }
+
+    public void write(Writer out) throws IOException {
+        for (var change : changes) {
+            var before = change.before();
+            var after = change.after();
+            out.write("~ " + after.uuid() + " " + after.name() + "\n");
+            for (var field : change.changedFields()) {
+                out.write("    " + field + ": " + value(before, field) + " -> " + value(after, field) + "\n");
+            }
+        }
+        for (var route : restores) {
+            out.write("= " + route.uuid() + " " + route.name() + "\n");
+        }
+        out.write(summary() + "\n");
+    }
+
+    private static String value(Route route, String field) {
+        return "queues".equals(field) ? String.join(",", route.queues()) : String.valueOf(RouteChange.value(route, field));
+    }
+
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The parsed command line: a command followed by options. Options taking a file accept {lane} in
+ * the file name, which is replaced with the name of the lane the command runs in.
+ */
+public record Cli(String command, Map<String, String> options, Set<String> flags) {
+
+    public static final String USAGE = """
+            Usage: RoutesApi <command> [--lanes dev,stage,prod] [--config lanes.properties] [--dry-run]
+
+            Conversions, run in every lane at once:
+              convertQueuesToEndpoints         emx-to queues to endpoints
+              convertEndpointsToQueues         endpoints back to emx-to queues
+              convertRuleToEndpointParts       emxSourceSystem/emxSourceEnvironment to endpoint.system/endpoint.env
+              convertRuleToHeaders             endpoint.system/endpoint.env back to emxSourceSystem/emxSourceEnvironment
+              rewriteRules --table <file>      renames the words of rules, listed as word=replacement lines
+              convertEndpointPattern           adds sys/qualifier#env next to sys#env/qualifier endpoint terms
+              cleanupEndpointPattern           drops the sys#env/qualifier half of those pairs
+              switchTargetsToQualifierPattern  queues from sys#env/qualifier to sys/qualifier#env
+
+            Several conversions separated by commas, e.g. convertQueuesToEndpoints,switchTargetsToQualifierPattern,
+            are applied to each route in that order, in one pass with one update per route.
+
+            Other commands:
+              revert --backup <file> [--transform <conversions>] [--applied [--journal <file>]] [--gzip-audit]
+                                               restores the routes that differ from the backup, or with
+                                               --applied those the interrupted run recorded in its journal,
+                                               ConversionProgress-<lane>-<run>.journal
+              syncSnapshot                     refreshes RoutesSnapshot-<lane>.ndjson
+              routesTo --target <queue or endpoint> | --system <system> | --env <environment> [--refresh]
+                                               lists the routes delivering to a target in any of its
+                                               forms; a target ending in * matches by prefix
+              findRedundantRoutes [--refresh]  writes duplicate and subsumed routes to RedundantRoutes-<lane>.txt
+              showBackup --backup <file> --uuid <uuid>
+              simulate --routes <file> --messages <file> --results <file>
+                                               --routes is a /routes dump, a .routes backup or a snapshot
+
+            routesTo and findRedundantRoutes read RoutesSnapshot-<lane>.ndjson, syncing it first when it
+            does not exist yet or with --refresh. Conversions and reverts write the routes they apply into it.
+
+            --dry-run computes the changes without sending any, and writes them to --plan
+            (default ChangePlan-<lane>.diff in the lane's directory). --parallelism <threads> sets how many threads convert the
+            routes of a lane, by default one per core. Every change sent is logged to
+            AuditLog-<lane>-<time>-0001.ndjson, gzipped with --gzip-audit. Files may contain {lane},
+            e.g. --backup OriginalRoutes-{lane}.routes
+            """;
+
+    private static final String REWRITE_RULES = "rewriteRules";
+    private static final Map<String, Function<Lane, RouteTransform>> CONVERSIONS = Map.of(
+            "convertQueuesToEndpoints", lane -> RouteTransforms.queuesToEndpoints(lane.queueEnvironment()),
+            "convertEndpointsToQueues", lane -> RouteTransforms.endpointsToQueues(lane.queueEnvironment()),
+            "convertRuleToEndpointParts", lane -> RouteTransforms.RULE_TO_ENDPOINT_PARTS,
+            "convertRuleToHeaders", lane -> RouteTransforms.RULE_TO_HEADERS,
+            "convertEndpointPattern", lane -> RouteTransforms.ENDPOINT_PATTERN,
+            "cleanupEndpointPattern", lane -> RouteTransforms.CLEANUP_ENDPOINT_PATTERN,
+            "switchTargetsToQualifierPattern", lane -> RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN);
+    private static final Set<String> OTHER_COMMANDS =
+            Set.of("revert", "syncSnapshot", "showBackup", "simulate", "routesTo", "findRedundantRoutes");
+    private static final Set<String> OPTIONS =
+            Set.of("lanes", "config", "plan", "backup", "transform", "uuid", "routes", "messages", "results",
+                    "parallelism", "target", "system", "env", "table", "journal");
+    private static final int RUN_DIGEST_LENGTH = 12;
+    private static final Set<String> FLAGS = Set.of("dry-run", "applied", "gzip-audit", "refresh", "help");
+
+    /**
+     * @throws IllegalArgumentException for an unknown command or option, or an option without its value
+     */
+    public static Cli parse(String... args) {
+        String command = null;
+        Map<String, String> options = new HashMap<>();
+        Set<String> flags = new HashSet<>();
+        for (int i = 0; i < args.length; i++) {
+            var arg = args[i];
+            if (arg.startsWith("--")) {
+                var name = arg.substring(2);
+                if (FLAGS.contains(name)) {
+                    flags.add(name);
+                } else if (!OPTIONS.contains(name)) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing the value of " + arg);
+                } else {
+                    options.put(name, args[++i]);
+                }
+            } else if (command == null) {
+                command = arg;
+            } else {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+        }
+        if (command == null) {
+            if (flags.contains("help")) {
+                return new Cli("help", options, flags);
+            }
+            throw new IllegalArgumentException("Missing the command");
+        }
+        if (!isConversion(command) && !OTHER_COMMANDS.contains(command)) {
+            if (command.contains(",")) {
+                for (var name : command.split(",", -1)) {
+                    if (!isConversion(name)) {
+                        throw new IllegalArgumentException("Only conversions can be chained, not " + name);
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Unknown command: " + command);
+        }
+        var transform = options.get("transform");
+        if (transform != null && !"none".equals(transform) && !isConversion(transform)) {
+            throw new IllegalArgumentException("Unknown conversion: " + transform);
+        }
+        var parallelism = options.get("parallelism");
+        if (parallelism != null && !parallelism.matches("[1-9][0-9]{0,3}")) {
+            throw new IllegalArgumentException("--parallelism must be a number of threads, not " + parallelism);
+        }
+        return new Cli(command, Map.copyOf(options), Set.copyOf(flags));
+    }
+
+    public boolean isConversion() {
+        return isConversion(command);
+    }
+
+    public boolean dryRun() {
+        return flags.contains("dry-run");
+    }
+
+    public boolean flag(String name) {
+        return flags.contains(name);
+    }
+
+    public List<String> lanes() {
+        var lanes = options.get("lanes");
+        return lanes == null ? List.of() : List.of(lanes.split(","));
+    }
+
+    public Optional<Path> config() {
+        return Optional.ofNullable(options.get("config")).map(Path::of);
+    }
+
+    /**
+     * How many threads transform the routes of a lane, by default one per core.
+     */
+    public ParallelTransform parallelism() {
+        var parallelism = options.get("parallelism");
+        return parallelism == null
+                ? ParallelTransform.DEFAULT
+                : new ParallelTransform(Integer.parseInt(parallelism), ParallelTransform.DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * How the audit log of a live run is written, gzipped with --gzip-audit.
+     */
+    public AuditLog.Options auditOptions() {
+        return flags.contains("gzip-audit")
+                ? new AuditLog.Options(AuditLog.Options.DEFAULT.rotateBytes(), true)
+                : AuditLog.Options.DEFAULT;
+    }
+
+    /**
+     * The conversions of the command in the order they apply, or those of --transform for a revert,
+     * which defaults to none.
+     */
+    public List<RouteTransform> transforms(Lane lane) {
+        var names = isConversion() ? command : options.getOrDefault("transform", "none");
+        if ("none".equals(names)) {
+            return List.of();
+        }
+        List<RouteTransform> transforms = new ArrayList<>();
+        for (var name : names.split(",")) {
+            transforms.add(conversion(name, lane));
+        }
+        return transforms;
+    }
+
+    private RouteTransform conversion(String name, Lane lane) {
+        if (REWRITE_RULES.equals(name)) {
+            var table = Path.of(option("table"));
+            try {
+                return RewriteTable.load(table).onRules();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the rewrite table " + table + ". " + e.getMessage(), e);
+            }
+        }
+        return CONVERSIONS.get(name).apply(lane);
+    }
+
+    /**
+     * Names the run of the command in the lane for its journal, e.g.
+     * convertQueuesToEndpoints-3f2a9c1e7b4d, with a + between chained conversions. The digest covers what the routes a run sends depend on
+     * besides the command: the queue environment of the lane, the conversion a revert applies and
+     * the backup it restores, and the contents of a rewrite table. A run only resumes from a journal
+     * with the same name.
+     */
+    public String run(Lane lane) {
+        var name = isConversion() ? command : options.getOrDefault("transform", "none");
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        digest.update((command + "\n" + name + "\n" + lane.queueEnvironment() + "\n").getBytes(StandardCharsets.UTF_8));
+        if (!isConversion()) {
+            digest.update(file("backup", lane).toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (List.of(name.split(",")).contains(REWRITE_RULES)) {
+            var table = Path.of(option("table"));
+            try {
+                digest.update(Files.readAllBytes(table));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the rewrite table " + table + ". " + e.getMessage(), e);
+            }
+        }
+        return command.replace(',', '+') + "-" + HexFormat.of().formatHex(digest.digest()).substring(0, RUN_DIGEST_LENGTH);
+    }
+
+    public String option(String name) {
+        var value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException(command + " needs --" + name);
+        }
+        return value;
+    }
+
+    /**
+     * @param names one conversion, or several separated by commas
+     */
+    private static boolean isConversion(String names) {
+        for (var name : names.split(",", -1)) {
+            if (!REWRITE_RULES.equals(name) && !CONVERSIONS.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A file option, with {lane} replaced by the lane name.
+     */
+    public Path file(String name, Lane lane) {
+        return Path.of(option(name).replace("{lane}", lane.name()));
+    }
+
+    /**
+     * Where a dry run in the lane writes its change plan: --plan, or else ChangePlan-<lane>.diff in
+     * the directory of the lane.
+     */
+    public Path plan(Lane lane) {
+        return options.containsKey("plan") ? file("plan", lane) : lane.file("ChangePlan", ".diff");
+    }
+
+}
@@ -0,0 +1,32 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A route rule parsed once into a {@link RuleNode} tree. Compiled rules are cached by their text,
+ * since the same rule is evaluated many times in a run.
+ */
+public record CompiledRule(String source, RuleNode root) {
+
+    private static final int CACHE_LIMIT = 50_000;
+    private static final Map<String, CompiledRule> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @throws IllegalArgumentException when the rule is not valid
+     */
+    public static CompiledRule of(String rule) {
+        var compiled = CACHE.get(rule);
+        if (compiled == null) {
+            compiled = new CompiledRule(rule, RuleParser.parse(rule));
+            if (CACHE.size() >= CACHE_LIMIT) {
+                CACHE.clear();
+            }
+            CACHE.put(rule, compiled);
+        }
+        return compiled;
+    }
+
+    public boolean matches(Map<String, String> headers) {
+        return root.matches(headers);
+    }
+
+}
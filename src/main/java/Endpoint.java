@@ -0,0 +1,144 @@
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An endpoint name, parsed once. Endpoints are written sys#env, sys#env/qualifier, or qualifier first
+ * as sys/qualifier#env; both qualified forms name the same endpoint. Endpoints are interned by their
+ * text, so parsing a name that was seen before is a hash lookup that returns the same instance.
+ */
+public final class Endpoint {
+
+    private static final int LIMIT = 100_000;
+    private static final Map<String, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+
+    private final String text;
+    private final String system;
+    private final String environment;
+    private final String qualifier;
+    private final boolean qualifierFirst;
+
+    private Endpoint(String text, String system, String environment, String qualifier, boolean qualifierFirst) {
+        this.text = text;
+        this.system = system;
+        this.environment = environment;
+        this.qualifier = qualifier;
+        this.qualifierFirst = qualifierFirst;
+    }
+
+    /**
+     * A qualifier may itself contain '/'. System, environment and qualifier are never empty, and only
+     * the qualifier first form may have a '/' before the '#'.
+     *
+     * @return the endpoint, or null when the text is not in one of the endpoint forms
+     */
+    public static Endpoint parse(String text) {
+        var endpoint = ENDPOINTS.get(text);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        int hash = text.indexOf('#');
+        if (hash < 1 || hash == text.length() - 1 || text.indexOf('#', hash + 1) >= 0) {
+            return null;
+        }
+        int slash = text.indexOf('/');
+        var canonical = Symbols.intern(text);
+        if (slash < 0) {
+            endpoint = new Endpoint(canonical, text.substring(0, hash), text.substring(hash + 1), null, false);
+        } else if (slash < hash) {
+            if (slash == 0 || slash == hash - 1 || text.indexOf('/', hash + 1) >= 0) {
+                return null;
+            }
+            endpoint = new Endpoint(canonical, text.substring(0, slash), text.substring(hash + 1),
+                    text.substring(slash + 1, hash), true);
+        } else {
+            if (slash == hash + 1 || slash == text.length() - 1) {
+                return null;
+            }
+            endpoint = new Endpoint(canonical, text.substring(0, hash), text.substring(hash + 1, slash),
+                    text.substring(slash + 1), false);
+        }
+        if (ENDPOINTS.size() >= LIMIT) {
+            ENDPOINTS.clear();
+        }
+        var existing = ENDPOINTS.putIfAbsent(canonical, endpoint);
+        return existing != null ? existing : endpoint;
+    }
+
+    /**
+     * The endpoint in sys#env or sys#env/qualifier form.
+     *
+     * @param qualifier the qualifier, or null for none
+     * @throws IllegalArgumentException when the parts do not make an endpoint
+     */
+    public static Endpoint of(String system, String environment, String qualifier) {
+        var text = qualifier == null ? system + "#" + environment : system + "#" + environment + "/" + qualifier;
+        var endpoint = parse(text);
+        if (endpoint == null || !endpoint.system.equals(system) || !endpoint.environment.equals(environment)
+                || !Objects.equals(endpoint.qualifier, qualifier)) {
+            throw new IllegalArgumentException("Not an endpoint: " + text);
+        }
+        return endpoint;
+    }
+
+    public String system() {
+        return system;
+    }
+
+    public String environment() {
+        return environment;
+    }
+
+    /**
+     * @return the qualifier, or null for a sys#env endpoint
+     */
+    public String qualifier() {
+        return qualifier;
+    }
+
+    /**
+     * Whether the endpoint was written sys/qualifier#env.
+     */
+    public boolean isQualifierFirst() {
+        return qualifierFirst;
+    }
+
+    /**
+     * @return the sys/qualifier#env form, or sys#env when there is no qualifier
+     */
+    public String qualifierFirst() {
+        return qualifierFirst || qualifier == null ? text : Symbols.intern(system + "/" + qualifier + "#" + environment);
+    }
+
+    /**
+     * @return the sys#env/qualifier form, or sys#env when there is no qualifier
+     */
+    public String environmentFirst() {
+        return !qualifierFirst ? text : Symbols.intern(system + "#" + environment + "/" + qualifier);
+    }
+
+    /**
+     * Endpoints are equal when they name the same endpoint, in whichever form they were written.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Endpoint endpoint
+                && system.equals(endpoint.system)
+                && environment.equals(endpoint.environment)
+                && Objects.equals(qualifier, endpoint.qualifier);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(system, environment, qualifier);
+    }
+
+    /**
+     * @return the endpoint as it was written
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+
+}
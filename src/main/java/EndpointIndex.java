@@ -0,0 +1,169 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Which routes deliver to each queue or endpoint. Targets are normalized so that every form of a
+ * target finds the same routes: emx-to-cfis-test, cfis#test, and for qualified endpoints both
+ * sys#env/qualifier and sys/qualifier#env. The core queues are resolved as the queue conversion
+ * resolves them, so in a stage lane emx-trash and emx-core-trash#stage are the same target. Other
+ * names are indexed as written.
+ *
+ * Lookups are hash or tree lookups, so they take microseconds however large the route table is.
+ * The index can be kept up to date one route at a time with {@link #put} and {@link #remove}; it
+ * is not thread safe.
+ */
+public final class EndpointIndex {
+
+    private final NavigableMap<String, Set<String>> routesByTarget = new TreeMap<>();
+    private final Map<String, Set<String>> targetsBySystem = new HashMap<>();
+    private final Map<String, Set<String>> targetsByEnvironment = new HashMap<>();
+    private final Map<String, Route> routes = new HashMap<>();
+    private final String queueEnvironment;
+
+    private EndpointIndex(String queueEnvironment) {
+        this.queueEnvironment = queueEnvironment;
+    }
+
+    /**
+     * @param queueEnvironment the environment of the lane, which the core queues deliver to
+     */
+    public static EndpointIndex of(RoutesList routes, String queueEnvironment) {
+        return of(routes.routes().iterator(), queueEnvironment);
+    }
+
+    public static EndpointIndex of(Iterator<Route> routes, String queueEnvironment) {
+        var index = new EndpointIndex(queueEnvironment);
+        while (routes.hasNext()) {
+            index.put(routes.next());
+        }
+        return index;
+    }
+
+    /**
+     * The target as it is indexed: sys#env or sys#env/qualifier for anything that names an
+     * endpoint, with system and environment URL encoded, and the name itself otherwise.
+     */
+    public static String normalize(String target, String queueEnvironment) {
+        var endpoint = endpoint(target, queueEnvironment);
+        return endpoint == null ? target : endpoint.environmentFirst();
+    }
+
+    public String normalize(String target) {
+        return normalize(target, queueEnvironment);
+    }
+
+    /**
+     * Adds the route, or replaces the targets of a route with the same uuid.
+     */
+    public void put(Route route) {
+        remove(route.uuid());
+        routes.put(route.uuid(), route);
+        for (var queue : route.queues()) {
+            var target = normalize(queue);
+            var uuids = routesByTarget.get(target);
+            if (uuids == null) {
+                uuids = new LinkedHashSet<>();
+                routesByTarget.put(target, uuids);
+                var endpoint = endpoint(target, queueEnvironment);
+                if (endpoint != null) {
+                    targetsBySystem.computeIfAbsent(endpoint.system(), system -> new LinkedHashSet<>()).add(target);
+                    targetsByEnvironment.computeIfAbsent(endpoint.environment(), environment -> new LinkedHashSet<>())
+                            .add(target);
+                }
+            }
+            uuids.add(route.uuid());
+        }
+    }
+
+    public void remove(String uuid) {
+        var route = routes.remove(uuid);
+        if (route == null) {
+            return;
+        }
+        for (var queue : route.queues()) {
+            var target = normalize(queue);
+            var uuids = routesByTarget.get(target);
+            if (uuids == null || !uuids.remove(uuid) || !uuids.isEmpty()) {
+                continue;
+            }
+            routesByTarget.remove(target);
+            var endpoint = endpoint(target, queueEnvironment);
+            if (endpoint != null) {
+                removeTarget(targetsBySystem, endpoint.system(), target);
+                removeTarget(targetsByEnvironment, endpoint.environment(), target);
+            }
+        }
+    }
+
+    public Route route(String uuid) {
+        return routes.get(uuid);
+    }
+
+    /**
+     * @return the uuids of the routes delivering to the target, in any of its forms
+     */
+    public Set<String> routesTo(String target) {
+        var uuids = routesByTarget.get(normalize(target));
+        return uuids == null ? Set.of() : Collections.unmodifiableSet(uuids);
+    }
+
+    /**
+     * @param prefix the start of normalized targets, e.g. "crm-" or "scms#"
+     */
+    public Set<String> routesWithPrefix(String prefix) {
+        Set<String> uuids = new LinkedHashSet<>();
+        for (var routesOfTarget : routesByTarget.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            uuids.addAll(routesOfTarget);
+        }
+        return uuids;
+    }
+
+    /**
+     * @param system the system as endpoints write it, e.g. cfis
+     */
+    public Set<String> routesToSystem(String system) {
+        return routesToTargets(targetsBySystem.getOrDefault(system, Set.of()));
+    }
+
+    public Set<String> routesToEnvironment(String environment) {
+        return routesToTargets(targetsByEnvironment.getOrDefault(environment, Set.of()));
+    }
+
+    /**
+     * Every normalized target routes deliver to, in order.
+     */
+    public Set<String> targets() {
+        return Collections.unmodifiableSet(routesByTarget.keySet());
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    private Set<String> routesToTargets(Set<String> targets) {
+        Set<String> uuids = new LinkedHashSet<>();
+        for (var target : targets) {
+            uuids.addAll(routesByTarget.get(target));
+        }
+        return uuids;
+    }
+
+    private static void removeTarget(Map<String, Set<String>> targets, String key, String target) {
+        var keyTargets = targets.get(key);
+        keyTargets.remove(target);
+        if (keyTargets.isEmpty()) {
+            targets.remove(key);
+        }
+    }
+
+    private static Endpoint endpoint(String target, String queueEnvironment) {
+        return Endpoint.parse(RouteTransforms.toEndpoint(target, queueEnvironment));
+    }
+
+}
@@ -0,0 +1,132 @@
+import java.util.Arrays;
+
+/**
+ * Writes the application/x-www-form-urlencoded /updateroute body of a route straight to bytes. The
+ * encoding is the one the Apache UrlEncodedFormEntity used: letters, digits and {@code -_.*} are
+ * kept, spaces become '+', and everything else is percent-encoded as UTF-8 with upper case hex.
+ * Each thread encodes into its own reusable buffer, so the only allocation per route is the
+ * returned body.
+ */
+final class FormEncoder {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+    private static final boolean[] SAFE = new boolean[128];
+    private static final ThreadLocal<FormEncoder> ENCODERS = ThreadLocal.withInitial(FormEncoder::new);
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SAFE[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            SAFE[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SAFE[c] = true;
+        }
+        SAFE['-'] = true;
+        SAFE['_'] = true;
+        SAFE['.'] = true;
+        SAFE['*'] = true;
+    }
+
+    private byte[] buffer = new byte[1024];
+    private int length;
+
+    private FormEncoder() {
+    }
+
+    /**
+     * @return name, rule, description, queues, enabled and uuid of the route as a form body
+     */
+    static byte[] encode(Route route) {
+        var encoder = ENCODERS.get();
+        encoder.length = 0;
+        encoder.field("name", route.name());
+        encoder.append('&');
+        encoder.field("rule", route.rule());
+        encoder.append('&');
+        encoder.field("description", route.description());
+        encoder.append('&');
+        encoder.ascii("queues=");
+        var queues = route.queues();
+        for (int i = 0; i < queues.size(); i++) {
+            if (i > 0) {
+                encoder.ascii("%2C");
+            }
+            encoder.value(queues.get(i));
+        }
+        encoder.append('&');
+        encoder.field("enabled", route.enabled() ? "true" : "false");
+        encoder.append('&');
+        encoder.field("uuid", route.uuid());
+        return Arrays.copyOf(encoder.buffer, encoder.length);
+    }
+
+    /**
+     * A null value is written as the bare name, as UrlEncodedFormEntity did.
+     */
+    private void field(String name, String value) {
+        ascii(name);
+        if (value != null) {
+            append('=');
+            value(value);
+        }
+    }
+
+    private void value(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                if (SAFE[c]) {
+                    append(c);
+                } else if (c == ' ') {
+                    append('+');
+                } else {
+                    escape(c);
+                }
+            } else if (c < 0x800) {
+                escape(0xC0 | (c >> 6));
+                escape(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                escape(0xF0 | (codePoint >> 18));
+                escape(0x80 | ((codePoint >> 12) & 0x3F));
+                escape(0x80 | ((codePoint >> 6) & 0x3F));
+                escape(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate has no UTF-8 form; String.getBytes writes '?' for it
+                escape('?');
+            } else {
+                escape(0xE0 | (c >> 12));
+                escape(0x80 | ((c >> 6) & 0x3F));
+                escape(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ascii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    private void escape(int b) {
+        ensure(3);
+        buffer[length++] = '%';
+        buffer[length++] = HEX[(b >> 4) & 0xF];
+        buffer[length++] = HEX[b & 0xF];
+    }
+
+    private void append(int b) {
+        ensure(1);
+        buffer[length++] = (byte) b;
+    }
+
+    private void ensure(int needed) {
+        if (length + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + needed));
+        }
+    }
+
+}
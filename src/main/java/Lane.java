@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * One emx-route-manager environment a migration runs against. Lanes are read from a properties
+ * file, where every setting is optional:
+ *
+ * <pre>
+ * lanes=dev,stage
+ * requestsPerSecond=50                 # default for every lane
+ * lane.stage.queueEnvironment=stage    # defaults to the lane name
+ * lane.stage.urlEnvironment=np         # defaults to dev, np or prod for dev, stage or prod
+ * lane.stage.baseUri=https://...       # defaults to the route manager of the url environment
+ * lane.stage.requestsPerSecond=20
+ * lane.stage.concurrency=16
+ * lane.stage.batchSize=25
+ * lane.stage.directory=runs/stage      # where the lane writes its files, defaults to .
+ * </pre>
+ *
+ * The account of a lane is emxaccount&lt;queueEnvironment&gt;.username and .password in the
+ * credentials.
+ */
+public record Lane(
+        String name,
+        String queueEnvironment,
+        String baseUri,
+        String authHeader,
+        double requestsPerSecond,
+        int concurrency,
+        int batchSize,
+        Path directory) {
+
+    private static final Map<String, String> URL_ENVIRONMENTS = Map.of("dev", "dev", "stage", "np", "prod", "prod");
+    private static final double DEFAULT_REQUESTS_PER_SECOND = 50;
+    private static final int DEFAULT_CONCURRENCY = 16;
+    private static final int DEFAULT_BATCH_SIZE = 25;
+
+    /**
+     * @param names the lanes to load, or empty for the lanes the config lists
+     */
+    public static List<Lane> load(Properties config, Properties credentials, List<String> names) {
+        var selected = names;
+        if (selected.isEmpty()) {
+            selected = Arrays.stream(config.getProperty("lanes", "dev").split(","))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .toList();
+        }
+        List<Lane> lanes = new ArrayList<>(selected.size());
+        for (var name : selected) {
+            lanes.add(load(name, config, credentials));
+        }
+        return lanes;
+    }
+
+    static Lane load(String name, Properties config, Properties credentials) {
+        var queueEnvironment = setting(config, name, "queueEnvironment", name);
+        var urlEnvironment = setting(config, name, "urlEnvironment", URL_ENVIRONMENTS.getOrDefault(name, name));
+        var baseUri = setting(config, name, "baseUri",
+                "https://emx-route-manager-" + urlEnvironment + ".churchofjesuschrist.org/api/emx-router");
+        var username = credentials.getProperty("emxaccount" + queueEnvironment + ".username");
+        var password = credentials.getProperty("emxaccount" + queueEnvironment + ".password");
+        if (username == null || password == null) {
+            throw new IllegalStateException("No emxaccount" + queueEnvironment
+                    + " username and password in the credentials for lane " + name);
+        }
+        try {
+            return new Lane(name, queueEnvironment, baseUri, username + ":" + password,
+                    Double.parseDouble(setting(config, name, "requestsPerSecond", DEFAULT_REQUESTS_PER_SECOND)),
+                    Integer.parseInt(setting(config, name, "concurrency", DEFAULT_CONCURRENCY)),
+                    Integer.parseInt(setting(config, name, "batchSize", DEFAULT_BATCH_SIZE)),
+                    Path.of(setting(config, name, "directory", ".")));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid number in the settings of lane " + name + ". " + e.getMessage(), e);
+        }
+    }
+
+    public static Properties readProperties(Path file) throws IOException {
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * A client of its own, so lanes do not share a rate limit or concurrency limit.
+     */
+    public RouteManagerClient client(HttpClient http) {
+        return new RouteManagerClient(
+                http,
+                baseUri,
+                authHeader,
+                new TokenBucket(requestsPerSecond, Math.max(1, (int) requestsPerSecond)),
+                RetryPolicy.DEFAULT,
+                new AdaptiveConcurrencyLimit(Math.min(4, concurrency), 1, concurrency));
+    }
+
+    /**
+     * A file of this lane in its directory, e.g. ./ConversionProgress-stage.journal.
+     */
+    public Path file(String prefix, String extension) {
+        return directory.resolve(prefix + "-" + name + extension);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String setting(Properties config, String lane, String key, Object defaultValue) {
+        var value = config.getProperty("lane." + lane + "." + key, config.getProperty(key));
+        return value == null ? String.valueOf(defaultValue) : value.trim();
+    }
+
+}
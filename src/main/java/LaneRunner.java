@@ -0,0 +1,129 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the same task against several lanes at once, one thread per lane. Each lane gets a client
+ * of its own, so a slow or throttled lane does not hold back the others. Running every lane takes
+ * as long as the slowest one rather than the sum of them. With more than one lane, every line a
+ * lane prints is prefixed with its name.
+ */
+public final class LaneRunner {
+
+    @FunctionalInterface
+    public interface LaneTask {
+        void run(Lane lane, RouteManagerClient client, PrintStream out) throws Exception;
+    }
+
+    /**
+     * @param failure why the lane failed, or null when it completed
+     */
+    public record LaneOutcome(Lane lane, Duration elapsed, Throwable failure) {
+
+        public boolean succeeded() {
+            return failure == null;
+        }
+
+    }
+
+    private LaneRunner() {
+    }
+
+    /**
+     * Runs the task on every lane and waits for all of them. A failing lane does not stop the others.
+     *
+     * @return the outcome of each lane, in the order of the lanes
+     */
+    public static List<LaneOutcome> run(List<Lane> lanes, HttpClient http, LaneTask task, PrintStream out) {
+        var executor = Executors.newFixedThreadPool(Math.max(1, lanes.size()));
+        try {
+            List<Future<LaneOutcome>> running = new ArrayList<>(lanes.size());
+            for (var lane : lanes) {
+                var laneOut = lanes.size() == 1
+                        ? out
+                        : new PrintStream(new PrefixedLines("[" + lane.name() + "] ", out), true, StandardCharsets.UTF_8);
+                running.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    Throwable failure = null;
+                    try {
+                        task.run(lane, lane.client(http), laneOut);
+                    } catch (Exception | Error e) {
+                        failure = e;
+                        laneOut.println("Failed: " + e);
+                    } finally {
+                        if (laneOut != out) {
+                            laneOut.close();
+                        }
+                    }
+                    return new LaneOutcome(lane, Duration.ofNanos(System.nanoTime() - start), failure);
+                }));
+            }
+            List<LaneOutcome> outcomes = new ArrayList<>(lanes.size());
+            for (var lane : running) {
+                outcomes.add(lane.get());
+            }
+            return outcomes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("There was an interruption while waiting for the lanes.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A lane could not be run. " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Buffers a line at a time and writes it, prefixed, to the shared output in one go, so lines of
+     * different lanes never interleave.
+     */
+    private static final class PrefixedLines extends OutputStream {
+
+        private final byte[] prefix;
+        private final PrintStream target;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        private PrefixedLines(String prefix, PrintStream target) {
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            this.target = target;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            line.write(b);
+            if (b == '\n') {
+                emit();
+            }
+        }
+
+        /**
+         * Ends a last line that was printed without a newline.
+         */
+        @Override
+        public synchronized void close() {
+            if (line.size() > 0) {
+                line.write('\n');
+                emit();
+            }
+        }
+
+        private void emit() {
+            synchronized (target) {
+                target.write(prefix, 0, prefix.length);
+                target.write(line.toByteArray(), 0, line.size());
+                target.flush();
+            }
+            line.reset();
+        }
+
+    }
+
+}
@@ -2,390 +2,591 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.message.BasicNameValuePair;
 
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.Properties;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 public class Main {
 
     private static final HttpClient CLIENT =
-            HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
-    private static final String QUEUE_ENVIRONMENT = "dev"; //dev, stage, prod
-    private static final String URL_ENVIRONMENT = "dev"; //dev, np, prod
-    private static final String BASE_URI =
-            "https://emx-route-manager-" + URL_ENVIRONMENT + ".churchofjesuschrist.org/api/emx-router";
+            HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+    private static final Path CREDENTIALS = Path.of(System.getProperty("user.home"), ".cred.properties");
+    private static final int JOURNAL_SYNC_EVERY = 64;
+    private static final Duration PROGRESS_EVERY = Duration.ofSeconds(10);
     private static final ObjectMapper MAPPER =
             JsonMapper.builder().addModule(new ParameterNamesModule()).build();
 
+    /**
+     * See {@link Cli#USAGE}.
+     */
     public static void main(String[] args) throws IOException {
-        Properties properties = new Properties();
-        properties.load(
-                new FileReader(System.getProperty("user.home") + File.separator + ".cred.properties"));
-        var authHeader =
-                properties.getProperty("emxaccount" + QUEUE_ENVIRONMENT + ".username")
-                        + ":"
-                        + properties.getProperty("emxaccount" + QUEUE_ENVIRONMENT + ".password");
+        Cli cli;
+        try {
+            cli = Cli.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Cli.USAGE);
+            System.exit(2);
+            return;
+        }
+        switch (cli.command()) {
+            case "help" -> System.out.println(Cli.USAGE);
+            case "showBackup" -> printBackedUpRoute(Path.of(cli.option("backup")), cli.option("uuid"));
+            case "simulate" -> simulateRouting(Path.of(cli.option("routes")), Path.of(cli.option("messages")),
+                    Path.of(cli.option("results")));
+            default -> {
+                var config = cli.config().isPresent() ? Lane.readProperties(cli.config().get()) : new Properties();
+                var lanes = Lane.load(config, Lane.readProperties(CREDENTIALS), cli.lanes());
+                LaneRunner.LaneTask task = switch (cli.command()) {
+                    case "revert" -> (lane, client, out) -> revert(lane, client, out, cli.file("backup", lane),
+                            pipeline(cli.transforms(lane)), cli.flag("applied") ? conversionJournal(lane, cli) : null,
+                            cli.run(lane), cli.auditOptions(), cli.dryRun() ? cli.plan(lane) : null);
+                    case "syncSnapshot" -> Main::syncSnapshot;
+                    case "routesTo" -> (lane, client, out) -> printRoutesTo(lane, client, out, cli);
+                    case "findRedundantRoutes" -> (lane, client, out) ->
+                            findRedundantRoutes(lane, client, out, cli.flag("refresh"));
+                    default -> (lane, client, out) -> {
+                        try (var transforms = cli.parallelism()) {
+                            runConversion(lane, client, out, cli.transforms(lane), cli.run(lane), transforms,
+                                    cli.auditOptions(), cli.dryRun() ? cli.plan(lane) : null);
+                        }
+                    };
+                };
+                var outcomes = LaneRunner.run(lanes, CLIENT, task, System.out);
+                printOutcomes(outcomes);
+                if (!outcomes.stream().allMatch(LaneRunner.LaneOutcome::succeeded)) {
+                    System.exit(1);
+                }
+            }
+        }
+    }
+
+    private static void printOutcomes(List<LaneRunner.LaneOutcome> outcomes) {
+        for (var outcome : outcomes) {
+            System.out.println(outcome.lane() + (outcome.succeeded() ? " finished" : " failed")
+                    + " in " + outcome.elapsed().toSeconds() + "s");
+        }
+    }
+
+    /**
+     * The journal of the conversion revert --applied undoes: --journal, or else the only conversion
+     * journal of the lane.
+     */
+    private static Path conversionJournal(Lane lane, Cli cli) throws IOException {
+        if (cli.options().containsKey("journal")) {
+            return cli.file("journal", lane);
+        }
+        List<Path> journals = new ArrayList<>();
+        try (var files = Files.newDirectoryStream(lane.directory(), "ConversionProgress-" + lane + "-*.journal")) {
+            files.forEach(journals::add);
+        }
+        if (journals.isEmpty()) {
+            throw new IllegalStateException("There is no ConversionProgress-" + lane + "-*.journal in "
+                    + lane.directory() + " to revert. --applied restores the routes an interrupted conversion "
+                    + "recorded there.");
+        }
+        if (journals.size() > 1) {
+            throw new IllegalStateException("Several conversions of lane " + lane + " left a journal: " + journals
+                    + ". Choose one with --journal.");
+        }
+        return journals.get(0);
+    }
+
+    /**
+     * Restores the routes of the backup that no longer match the live route table or, with applied,
+     * the routes an interrupted run recorded in its journal, without reading the live route table.
+     * Once every one of those routes is restored the journal is retired, so the next conversion
+     * sends them again rather than taking them as already applied.
+     *
+     * @param applied the journal of the conversion to revert, or null to revert against the live routes
+     * @param run the name of the revert, see {@link Cli#run}
+     * @param audit how the audit log of the restored routes is written
+     * @param plan where to write the changes instead of sending them, or null to send them
+     */
+    static void revert(Lane lane, RouteManagerClient client, PrintStream out, Path backupFile,
+                       RouteTransform transform, Path applied, String run, AuditLog.Options audit, Path plan)
+            throws IOException {
+        var metrics = new RunMetrics(lane.name());
+        if (applied != null) {
+            if (!Files.exists(applied)) {
+                throw new IllegalStateException("There is no journal " + applied
+                        + " to revert. --applied restores the routes an interrupted conversion recorded there.");
+            }
+            UpdateReport report;
+            try (var journal = ProgressJournal.open(applied, JOURNAL_SYNC_EVERY)) {
+                report = restore(lane, client, out, metrics, TargetedRevert.againstJournal(journal), backupFile,
+                        transform, run, audit, plan);
+            }
+            if (report != null) {
+                retireJournal(applied, report, out);
+            }
+            return;
+        }
+        TargetedRevert revert;
+        try (var live = streamRoutes(client, metrics)) {
+            revert = TargetedRevert.againstLive(metrics.timed(live));
+        }
+        restore(lane, client, out, metrics, revert, backupFile, transform, run, audit, plan);
+    }
+
+    /**
+     * @return the report of the restored routes, or null for a dry run
+     */
+    private static UpdateReport restore(Lane lane, RouteManagerClient client, PrintStream out, RunMetrics metrics,
+                                        TargetedRevert revert, Path backupFile, RouteTransform transform,
+                                        String run, AuditLog.Options audit, Path plan) throws IOException {
+        try (var backup = RouteBackup.isBackup(backupFile) ? RouteBackup.open(MAPPER, backupFile) : null;
+             var jsonBackup = backup == null ? new RouteStreamReader(MAPPER, Files.newInputStream(backupFile)) : null) {
+            var routes = backup != null ? backup.iterator() : jsonBackup;
+            if (plan != null) {
+                var changes = new ChangePlan();
+                revert.restore(routes, transform, route -> {
+                    var current = revert.current(route.uuid());
+                    if (current != null) {
+                        changes.add(new RouteChange(current, route));
+                    } else {
+                        changes.add(route);
+                    }
+                });
+                out.println(revert.summary());
+                writePlan(changes, plan, out);
+                return null;
+            }
+            var journalFile = journalFile(lane, "RevertProgress", run);
+            UpdateReport report;
+            AuditLog auditLog;
+            var progress = metrics.reportProgress(out, PROGRESS_EVERY);
+            try (progress;
+                 var journal = openJournal(journalFile, run, out);
+                 var log = AuditLog.open(MAPPER, lane.directory(), "AuditLog-" + lane + "-revert-" + timestamp(), audit)) {
+                auditLog = log;
+                var updater = new RouteUpdater(client,
+                        new RouteUpdater.Options(journal, lane.batchSize(), metrics, log));
+                List<Route> sent = new ArrayList<>();
+                try {
+                    revert.restore(routes, metrics.timed(transform), route -> {
+                        metrics.transformed(true);
+                        sent.add(route);
+                        var current = revert.current(route.uuid());
+                        if (current != null) {
+                            updater.submit(new RouteChange(current, route));
+                        } else {
+                            updater.submit(route);
+                        }
+                    });
+                } finally {
+                    out.println(revert.summary());
+                    report = updater.finish();
+                    printReport(report, out);
+                    writeMetrics(lane, metrics, out);
+                    updateSnapshot(lane, journal, sent, out);
+                }
+            }
+            out.println("Changes logged to " + auditLog.files());
+            closeJournal(journalFile, report, out);
+            return report;
+        }
+    }
 
-        runEndpointConversion(authHeader);
+    /**
+     * Renames the journal of a reverted conversion to .reverted, once the revert restored every route
+     * it records. After a failed restore it is kept, so the revert can be run again.
+     */
+    private static void retireJournal(Path journalFile, UpdateReport report, PrintStream out) throws IOException {
+        if (!report.failures().isEmpty()) {
+            out.println("Kept " + journalFile + " because some routes could not be restored.");
+            return;
+        }
+        var retired = journalFile.resolveSibling(journalFile.getFileName() + ".reverted");
+        Files.move(journalFile, retired, StandardCopyOption.REPLACE_EXISTING);
+        out.println("Moved " + journalFile + " to " + retired + ", so the next conversion sends every route again.");
+    }
 
-        // The fallback
-        //revert(authHeader, "./OriginalRoutes2024-02-16T14:05:23.370439.json");
+    /**
+     * Backs up, converts and updates every route. Applied routes are recorded in the journal of the
+     * run, so if the run dies it can be started again and carry on where it stopped. The journal also
+     * names the backup of the first attempt, which a resumed run keeps instead of backing up routes it
+     * already changed. The journal is removed once a run finishes without failures.
+     *
+     * @param conversions applied to each route one after the other, in a single pass over the routes
+     * @param run the name of the run, see {@link Cli#run}; the journal is named after it
+     * @param transforms how the routes are transformed, in chunks, on several threads
+     * @param audit how the audit log of the sent changes is written
+     * @param plan where to write the changes instead of sending them, or null to send them
+     */
+    static void runConversion(Lane lane, RouteManagerClient client, PrintStream out, List<RouteTransform> conversions,
+                              String run, ParallelTransform transforms, AuditLog.Options audit, Path plan)
+            throws IOException {
+        var metrics = new RunMetrics(lane.name());
+        var timedTransform = metrics.timed(pipeline(conversions));
+        if (plan != null) {
+            var changes = new ChangePlan();
+            try (var routes = streamRoutes(client, metrics)) {
+                transforms.forEach(metrics.timed(routes), timedTransform, (route, converted) -> {
+                    var change = new RouteChange(route, converted);
+                    metrics.transformed(change.changed());
+                    changes.add(change);
+                });
+            }
+            writePlan(changes, plan, out);
+            writeMetrics(lane, metrics, out);
+            return;
+        }
+        var timestamp = timestamp();
+        var backupName = "OriginalRoutes-" + lane + "-" + timestamp;
+        var journalFile = journalFile(lane, "ConversionProgress", run);
+        UpdateReport report;
+        Path backupFile;
+        AuditLog auditLog;
+        var progress = metrics.reportProgress(out, PROGRESS_EVERY);
+        try (progress;
+             var journal = openJournal(journalFile, run, out);
+             var log = AuditLog.open(MAPPER, lane.directory(), "AuditLog-" + lane + "-" + timestamp, audit)) {
+            auditLog = log;
+            var updater = new RouteUpdater(client, new RouteUpdater.Options(journal, lane.batchSize(), metrics, log));
+            List<Route> sent = new ArrayList<>();
+            var firstBackup = journal.backup();
+            firstBackup.ifPresent(file -> out.println("Keeping " + file + ", the backup of the first attempt."));
+            RouteBackupWriter backup = null;
+            try (var routes = streamRoutes(client, metrics);
+                 var backupWriter = firstBackup.isPresent()
+                         ? null
+                         : RouteBackupWriter.create(MAPPER, lane.directory(), backupName)) {
+                if (backupWriter != null) {
+                    journal.recordBackup(backupWriter.file());
+                    backup = backupWriter;
+                }
+                transforms.forEach(metrics.timed(routes), timedTransform, (route, converted) -> {
+                    if (backupWriter != null) {
+                        try {
+                            backupWriter.write(route);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    var change = new RouteChange(route, converted);
+                    metrics.transformed(change.changed());
+                    if (change.changed()) {
+                        sent.add(converted);
+                    }
+                    updater.submit(change);
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                if (backup != null) {
+                    // Closed by now, so this is the name the backup was kept under
+                    journal.recordBackup(backup.file());
+                }
+                report = updater.finish();
+                printReport(report, out);
+                writeMetrics(lane, metrics, out);
+                updateSnapshot(lane, journal, sent, out);
+            }
+            backupFile = backup != null ? backup.file() : firstBackup.get();
+        }
+        out.println("Original routes backed up to " + backupFile);
+        out.println("Changes logged to " + auditLog.files());
+        closeJournal(journalFile, report, out);
+    }
 
+    private static RouteTransform pipeline(List<RouteTransform> conversions) {
+        var pipeline = RoutePipeline.builder();
+        conversions.forEach(pipeline::then);
+        return pipeline.build();
     }
 
-    private static void revert(String authHeader, String fileName) throws IOException {
-        byte[] backup = Files.readAllBytes(Path.of(fileName));
-        //var queueRoutes = convertEndpointsToQueues(backup);
-        var routes = convertRuleToHeaders(backup);
-        parameterizeUpdate(authHeader, routes);
+    private static String timestamp() {
+        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
 
-    private static void runEndpointConversion(String authHeader) throws IOException {
-        var routes = getRoutes(authHeader);
+    private static void writeMetrics(Lane lane, RunMetrics metrics, PrintStream out) throws IOException {
+        var file = lane.file("RunMetrics", ".json");
+        metrics.write(MAPPER, file);
+        out.println("Timings and counts written to " + file);
+    }
 
-        Files.writeString(Path.of("./OriginalRoutes" + LocalDateTime.now().format(
-                DateTimeFormatter.ISO_LOCAL_DATE_TIME) + ".json"), routes);
+    private static void writePlan(ChangePlan changes, Path plan, PrintStream out) throws IOException {
+        try (var writer = Files.newBufferedWriter(plan)) {
+            changes.write(writer);
+        }
+        out.println("Dry run: " + changes.summary() + ". The changes are in " + plan);
+    }
 
-        var endpointRoutes = switchTargetsToQualifierPattern(routes);
-        parameterizeUpdate(authHeader, endpointRoutes);
+    private static void printBackedUpRoute(Path backupFile, String uuid) throws IOException {
+        try (var backup = RouteBackup.open(MAPPER, backupFile)) {
+            var route = backup.get(uuid);
+            System.out.println(route.isPresent()
+                    ? MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(route.get())
+                    : "Route " + uuid + " is not in " + backupFile);
+        }
     }
 
-    private static void parameterizeUpdate(String authHeader, List<Route> routes) {
-        for (var route : routes) {
-            var parameters = addSharedParams(route);
-            String body = createUrlEncodedBody(parameters);
-            updateRoute(authHeader, body);
+    private static void syncSnapshot(Lane lane, RouteManagerClient client, PrintStream out) throws IOException {
+        try (var store = SnapshotStore.open(MAPPER, lane.file("RoutesSnapshot", ".ndjson"))) {
+            var previousWatermark = store.watermark();
+            sync(lane, client, store, out);
+            previousWatermark.ifPresent(watermark -> out.println(
+                    store.modifiedAfter(watermark).size() + " routes modified after " + watermark));
         }
     }
 
-    private static String getRoutes(String authHeader) {
-        var request =
-                HttpRequest.newBuilder()
-                        .uri(URI.create(BASE_URI + "/routes"))
-                        .setHeader(
-                                "Authorization",
-                                "Basic "
-                                        + Base64.getEncoder()
-                                        .encodeToString(authHeader.getBytes(StandardCharsets.UTF_8)))
-                        .GET()
-                        .build();
-        return makeHttpCall(request);
+    /**
+     * The routes of the lane as its snapshot holds them. The snapshot is synced with the live route
+     * table first when it does not exist yet or refresh is set; otherwise no request is made.
+     */
+    private static List<Route> snapshotRoutes(Lane lane, RouteManagerClient client, PrintStream out, boolean refresh)
+            throws IOException {
+        var snapshot = lane.file("RoutesSnapshot", ".ndjson");
+        var exists = Files.exists(snapshot);
+        try (var store = SnapshotStore.open(MAPPER, snapshot)) {
+            if (refresh || !exists) {
+                sync(lane, client, store, out);
+            } else {
+                out.println("Reading " + store.size() + " routes from " + snapshot + ", modified up to "
+                        + store.watermark().orElse("an unknown date") + ". Add --refresh to sync it first.");
+            }
+            return new ArrayList<>(store.routes());
+        }
     }
 
-    private static String updateRoute(String authHeader, String body) {
-        var request =
-                HttpRequest.newBuilder()
-                        .uri(URI.create(BASE_URI + "/updateroute"))
-                        .setHeader(
-                                "Authorization",
-                                "Basic "
-                                        + Base64.getEncoder()
-                                        .encodeToString(authHeader.getBytes(StandardCharsets.UTF_8)))
-                        .PUT(BodyPublishers.ofString(body))
-                        .build();
-        return makeHttpCall(request);
+    private static void sync(Lane lane, RouteManagerClient client, SnapshotStore store, PrintStream out)
+            throws IOException {
+        try (var routes = streamRoutes(client, new RunMetrics(lane.name()))) {
+            out.println(store.sync(routes).summary());
+        }
+        if (store.compactIfStale()) {
+            out.println("Snapshot compacted to " + store.size() + " routes.");
+        }
     }
 
-    private static String makeHttpCall(HttpRequest request) {
-        HttpResponse<String> response;
+    /**
+     * Writes the routes the journal records as applied into the snapshot of the lane, so routesTo
+     * and findRedundantRoutes see them without syncing again. A lane without a snapshot is left
+     * alone; its first query syncs one.
+     *
+     * @param sent the routes as they were sent, including those the journal held from an earlier attempt
+     */
+    private static void updateSnapshot(Lane lane, ProgressJournal journal, List<Route> sent, PrintStream out)
+            throws IOException {
+        var snapshot = lane.file("RoutesSnapshot", ".ndjson");
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        int applied = 0;
+        try (var store = SnapshotStore.open(MAPPER, snapshot)) {
+            for (var route : sent) {
+                if (journal.isApplied(route.uuid())) {
+                    store.put(route);
+                    applied++;
+                }
+            }
+            store.compactIfStale();
+        }
+        out.println(applied + " applied routes written to " + snapshot);
+    }
+
+    private static void printRoutesTo(Lane lane, RouteManagerClient client, PrintStream out, Cli cli)
+            throws IOException {
+        var index = EndpointIndex.of(snapshotRoutes(lane, client, out, cli.flag("refresh")).iterator(),
+                lane.queueEnvironment());
+        String query;
+        Set<String> uuids;
+        if (cli.options().containsKey("system")) {
+            query = "system " + cli.option("system");
+            uuids = index.routesToSystem(cli.option("system"));
+        } else if (cli.options().containsKey("env")) {
+            query = "environment " + cli.option("env");
+            uuids = index.routesToEnvironment(cli.option("env"));
+        } else if (cli.option("target").endsWith("*")) {
+            var prefix = cli.option("target").substring(0, cli.option("target").length() - 1);
+            query = "targets starting with " + prefix;
+            uuids = index.routesWithPrefix(prefix);
+        } else {
+            query = index.normalize(cli.option("target"));
+            uuids = index.routesTo(cli.option("target"));
+        }
+        for (var uuid : uuids) {
+            var route = index.route(uuid);
+            out.println(uuid + " " + route.name() + " -> " + String.join(",", route.queues()));
+        }
+        out.println(uuids.size() + " of " + index.size() + " routes deliver to " + query);
+    }
+
+    private static void findRedundantRoutes(Lane lane, RouteManagerClient client, PrintStream out, boolean refresh)
+            throws IOException {
+        var analysis = RedundantRoutes.analyze(snapshotRoutes(lane, client, out, refresh), lane.queueEnvironment());
+        var report = lane.file("RedundantRoutes", ".txt");
+        try (var writer = Files.newBufferedWriter(report)) {
+            analysis.write(writer);
+        }
+        out.println(analysis.summary() + " The routes are listed in " + report);
+    }
+
+    private static void simulateRouting(Path routesFile, Path messages, Path results) throws IOException {
+        var simulator = new RoutingSimulator(readRoutes(routesFile));
+        for (var invalid : simulator.invalidRoutes()) {
+            System.out.println("Skipping route with invalid rule: " + invalid.uuid() + " (" + invalid.name() + ")");
+        }
+        long start = System.nanoTime();
+        long count = simulator.replay(MAPPER, messages, results);
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        System.out.println("Routed " + count + " messages in " + elapsed.toMillis() + "ms");
+    }
+
+    /**
+     * Reads a RoutesSnapshot .ndjson file, an OriginalRoutes backup, or a /routes JSON dump such as
+     * the older JSON backups.
+     */
+    private static RoutesList readRoutes(Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(".ndjson")) {
+            if (!Files.exists(file)) {
+                throw new NoSuchFileException(file.toString());
+            }
+            try (var store = SnapshotStore.open(MAPPER, file)) {
+                return store.toRoutesList();
+            }
+        }
+        if (!RouteBackup.isBackup(file)) {
+            return marshalRoutes(Files.readAllBytes(file));
+        }
+        try (var backup = RouteBackup.open(MAPPER, file)) {
+            List<Route> routes = new ArrayList<>(backup.size());
+            backup.forEach(routes::add);
+            return new RoutesList(routes);
+        }
+    }
+
+    private static Path journalFile(Lane lane, String prefix, String run) {
+        return lane.directory().resolve(prefix + "-" + lane + "-" + run + ".journal");
+    }
+
+    private static ProgressJournal openJournal(Path journalFile, String run, PrintStream out) throws IOException {
+        var journal = ProgressJournal.open(journalFile, JOURNAL_SYNC_EVERY, run);
+        if (journal.appliedCount() > 0) {
+            out.println("Resuming from " + journalFile + ": "
+                    + journal.appliedCount() + " routes already applied.");
+        }
+        return journal;
+    }
+
+    /**
+     * Keeps the journal of a run with failures so it can be resumed; a clean run no longer needs it.
+     */
+    private static void closeJournal(Path journalFile, UpdateReport report, PrintStream out) throws IOException {
+        if (report.failures().isEmpty()) {
+            Files.delete(journalFile);
+        } else {
+            out.println("Rerun with " + journalFile + " to retry the failed routes.");
+        }
+    }
+
+    private static void printReport(UpdateReport report, PrintStream out) {
+        out.println(report.summary());
+        for (var failure : report.failures()) {
+            out.println(
+                    "Failed route: " + failure.uuid()
+                            + " (" + failure.name() + ")"
+                            + " StatusCode: " + failure.statusCode()
+                            + " Body: " + failure.message());
+        }
+    }
+
+    private static RouteStreamReader streamRoutes(RouteManagerClient client, RunMetrics metrics) {
+        var request = client.request("/routes").GET().build();
+        HttpResponse<InputStream> response;
+        var timing = metrics.startFetch();
         try {
-            response = CLIENT.send(request, BodyHandlers.ofString());
+            response = client.send(request, BodyHandlers.ofInputStream());
+            timing.end(response.statusCode());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IllegalStateException("There was an interruption to the thread in the http call.");
         } catch (IOException e) {
             throw new IllegalStateException("There was an io Exception in the http call.");
         }
-        if (response.statusCode() != 200) {
-            throw new IllegalStateException(
-                    "There was an error in the http call. StatusCode: "
-                            + response.statusCode()
-                            + " Body: "
-                            + response.body());
-        }
-        return response.body();
-    }
-
-    static List<Route> convertQueuesToEndpoints(String body) throws JsonProcessingException {
-        var routes = marshalRoutes(body);
-        List<Route> updatedRoutes = new ArrayList<>();
-        for (var route : routes.routes()) {
-            List<String> endpoints = new ArrayList<>();
-            for (var queue : route.queues()) {
-                System.out.println("Processing queue: " + queue);
-                if ("emx-trash".equals(queue)) {
-                    endpoints.add("emx-core-trash#" + QUEUE_ENVIRONMENT);
-                } else if ("emx-to-archive-core".equals(queue)) {
-                    endpoints.add("emx-core-archive#" + QUEUE_ENVIRONMENT);
-                } else if ("emx-to-emx-healthcheck".equals(queue)) {
-                    endpoints.add("emx-core-healthcheck#" + QUEUE_ENVIRONMENT);
-                } else if (queue.contains("#")) {
-                    endpoints.add(queue);
-                } else {
-                    var pieces = queue.split("-");
-                    StringBuilder system = new StringBuilder();
-                    for (int i = 2; i < pieces.length - 1; i++) {
-                        system.append(pieces[i]).append("-");
-                    }
-                    system.deleteCharAt(system.length() - 1);
-                    String systemEncoded = URLEncoder.encode(system.toString(), StandardCharsets.UTF_8);
-                    String environment = URLEncoder.encode(pieces[pieces.length - 1], StandardCharsets.UTF_8);
-                    endpoints.add(systemEncoded + "#" + environment);
-                }
-            }
-            if (endpoints.isEmpty()) {
-                continue;
-            }
-            var updatedRoute =
-                    new Route(
-                            route.uuid(),
-                            route.name(),
-                            route.rule(),
-                            route.description(),
-                            route.enabled(),
-                            endpoints,
-                            route.createdDate(),
-                            route.modifiedDate());
-            updatedRoutes.add(updatedRoute);
-        }
-        return updatedRoutes;
-    }
-
-    static List<Route> convertEndpointsToQueues(byte[] input) throws IOException {
-        var routes = marshalRoutes(input);
-        List<Route> updatedRoutes = new ArrayList<>();
-        for (var route : routes.routes()) {
-            List<String> queues = new ArrayList<>();
-            for (var endpoint : route.queues()) {
-                if (("emx-core-trash#" + QUEUE_ENVIRONMENT).equals(endpoint)) {
-                    queues.add("emx-trash");
-                } else if (("emx-core-archive#" + QUEUE_ENVIRONMENT).equals(endpoint)) {
-                    queues.add("emx-to-archive-core");
-                } else if (("emx-core-healthcheck#" + QUEUE_ENVIRONMENT).equals(endpoint)) {
-                    queues.add("emx-to-emx-healthcheck");
-                } else if (endpoint.contains("emx-to") || "emx-trash".equals(endpoint)) {
-                    queues.add(endpoint);
-                } else {
-                    var pieces = endpoint.split("#");
-                    String system = URLDecoder.decode(pieces[0], StandardCharsets.UTF_8);
-                    String environment = URLDecoder.decode(pieces[1], StandardCharsets.UTF_8);
-                    queues.add("emx-to-" + system + "-" + environment);
+        try {
+            if (response.statusCode() != 200) {
+                String body;
+                try (var input = response.body()) {
+                    body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
                 }
+                throw new IllegalStateException(
+                        "There was an error in the http call. StatusCode: "
+                                + response.statusCode()
+                                + " Body: "
+                                + body);
             }
-            if (queues.isEmpty()) {
-                continue;
-            }
-            var updatedRoute =
-                    new Route(
-                            route.uuid(),
-                            route.name(),
-                            route.rule(),
-                            route.description(),
-                            route.enabled(),
-                            queues,
-                            route.createdDate(),
-                            route.modifiedDate());
-            updatedRoutes.add(updatedRoute);
+            return new RouteStreamReader(MAPPER, response.body());
+        } catch (IOException e) {
+            throw new IllegalStateException("There was an io Exception reading the routes.", e);
         }
-        return updatedRoutes;
+    }
+
+    static List<Route> convertQueuesToEndpoints(String body, String queueEnvironment) throws JsonProcessingException {
+        return convert(marshalRoutes(body), RouteTransforms.queuesToEndpoints(queueEnvironment), true);
+    }
+
+    static List<Route> convertEndpointsToQueues(byte[] input, String queueEnvironment) throws IOException {
+        return convert(marshalRoutes(input), RouteTransforms.endpointsToQueues(queueEnvironment), true);
     }
 
     static List<Route> convertRuleToEndpointParts(String body) throws JsonProcessingException {
-        var routes = marshalRoutes(body);
-        List<Route> updatedRoutes = new ArrayList<>();
-        for (var route : routes.routes()) {
-            var rule = route.rule().replace("emxSourceSystem", "endpoint.system").replace("emxSourceEnvironment", "endpoint.env");
-            updatedRoutes.add(new Route(
-                    route.uuid(),
-                    route.name(),
-                    rule,
-                    route.description(),
-                    route.enabled(),
-                    route.queues(),
-                    route.createdDate(),
-                    route.modifiedDate()
-            ));
-        }
-        return updatedRoutes;
+        return convert(marshalRoutes(body), RouteTransforms.RULE_TO_ENDPOINT_PARTS, false);
     }
 
     static List<Route> convertRuleToHeaders(byte[] input) throws IOException {
-        var routes = marshalRoutes(input);
-        List<Route> updatedRoutes = new ArrayList<>();
-        for (var route : routes.routes()) {
-            var rule = route.rule().replace("endpoint.system", "emxSourceSystem").replace("endpoint.env", "emxSourceEnvironment");
-            updatedRoutes.add(
-                    new Route(
-                            route.uuid(),
-                            route.name(),
-                            rule,
-                            route.description(),
-                            route.enabled(),
-                            route.queues(),
-                            route.createdDate(),
-                            route.modifiedDate()
-                    )
-            );
-        }
-        return updatedRoutes;
+        return convert(marshalRoutes(input), RouteTransforms.RULE_TO_HEADERS, false);
     }
 
     static List<Route> convertEndpointPattern(String body) throws JsonProcessingException {
-        var routes = marshalRoutes(body);
-        List<Route> updatedRoutes = new ArrayList<>();
-        var processedEndpoint = Pattern.compile(".*endpoint==\"(.+/.+#.+).*", Pattern.DOTALL);
-        var pattern = Pattern.compile(".*endpoint==\"(.+?)\".*", Pattern.DOTALL);
-        for (var route : routes.routes()) {
-            var rule = route.rule();
-            var matcher = pattern.matcher(rule);
-            if(processedEndpoint.matcher(rule).matches()){
-                updatedRoutes.add(route);
-            }
-            else if (matcher.matches()) {
-                var group = matcher.group(1);
-                if (group.contains("/")) {
-                    var endpoint = group.split("/");
-                    var systemEnv = endpoint[0].split("#");
-                    var qualifier = endpoint[1];
-                    var system = systemEnv[0];
-                    var env = systemEnv[1];
-                    StringBuilder endpointPattern = new StringBuilder();
-                    endpointPattern.append("(endpoint==\"");
-                    endpointPattern.append(system).append("/").append(qualifier).append("#").append(env);
-                    endpointPattern.append("\"").append(" || endpoint==\"");
-                    endpointPattern.append(system).append("#").append(env).append("/").append(qualifier);
-                    endpointPattern.append("\")");
-                    updatedRoutes.add(new Route(route.uuid(),
-                            route.name(),
-                            route.rule().replace("endpoint==\"" + group + "\"", endpointPattern.toString()),
-                            route.description(),
-                            route.enabled(),
-                            route.queues(),
-                            route.createdDate(),
-                            route.modifiedDate()));
-                } else {
-                    updatedRoutes.add(route);
-                }
-            } else {
-                updatedRoutes.add(route);
-            }
-        }
-        return updatedRoutes;
+        return convert(marshalRoutes(body), RouteTransforms.ENDPOINT_PATTERN, false);
     }
 
     static List<Route> cleanupEndpointPattern(String body) throws JsonProcessingException {
-        var routes = marshalRoutes(body);
-        List<Route> updatedRoutes = new ArrayList<>();
-        var backwardsCompatiblePattern = Pattern.compile(".*(\\(endpoint==.+?\\)).*", Pattern.DOTALL);
-        var qualifierFocusPattern = Pattern.compile(".*(endpoint==\".+/.+#.+\")\\s\\|\\|.+");
-        for (var route : routes.routes()) {
-            var rule = route.rule();
-            var matcher = backwardsCompatiblePattern.matcher(rule);
-            if(matcher.matches()){
-                var backwardsCompatible = matcher.group(1);
-                var qualiferMatcher = qualifierFocusPattern.matcher(backwardsCompatible);
-                if(qualiferMatcher.matches()) {
-                    var qualifierFocus = qualiferMatcher.group(1);
-                    updatedRoutes.add(new Route(route.uuid(),
-                            route.name(),
-                            route.rule().replace(backwardsCompatible, qualifierFocus),
-                            route.description(),
-                            route.enabled(),
-                            route.queues(),
-                            route.createdDate(),
-                            route.modifiedDate()));
-                } else{
-                    updatedRoutes.add(route);
-                }
-            } else{
-                updatedRoutes.add(route);
-            }
-        }
-        return updatedRoutes;
+        return convert(marshalRoutes(body), RouteTransforms.CLEANUP_ENDPOINT_PATTERN, false);
     }
 
     static List<Route> switchTargetsToQualifierPattern(String body) throws JsonProcessingException {
-        var routes = marshalRoutes(body);
-        List<Route> updatedRoutes = new ArrayList<>();
-        var qualifierEndpoint = Pattern.compile("(.+)#(.+)/(.+)");
-        for (var route : routes.routes()) {
-            var queues = route.queues();
-            List<String> updatedQueues = new ArrayList<>();
-            for (var queue : queues) {
-                var matcher = qualifierEndpoint.matcher(queue);
-                if(matcher.matches()){
-                   var endpoint = new StringBuilder();
-                   endpoint.append(matcher.group(1))
-                           .append("/")
-                           .append(matcher.group(3))
-                           .append("#")
-                           .append(matcher.group(2));
-                   updatedQueues.add(endpoint.toString());
-                } else{
-                    updatedQueues.add(queue);
-                }
-            }
-            updatedRoutes.add(new Route(route.uuid(),
-                    route.name(),
-                    route.rule(),
-                    route.description(),
-                    route.enabled(),
-                    updatedQueues,
-                    route.createdDate(),
-                    route.modifiedDate()));
-        }
-        return updatedRoutes;
-    }
-
-    static String createUrlEncodedBody(List<NameValuePair> params) {
-        try {
-            UrlEncodedFormEntity urlEncodedFormEntity = new UrlEncodedFormEntity(params, "UTF-8");
-            int size = (int) urlEncodedFormEntity.getContentLength();
-            byte[] content = new byte[size];
-            int bytesRead = urlEncodedFormEntity.getContent().read(content);
-            return new String(content);
-        } catch (Exception exception) {
-            throw new IllegalStateException(exception.getMessage(), exception);
-        }
+        return convert(marshalRoutes(body), RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN, false);
     }
 
     /**
-     * Adds the common name value pairs used in getting routes
+     * Applies a single route transform to every route in the list, in parallel for large lists.
      *
-     * @param route name value pairs are created of route properties
+     * @param skipWithoutQueues drops routes that have no queues, as the queue conversions always have
      */
-    static List<NameValuePair> addSharedParams(Route route) {
-        List<NameValuePair> params = new ArrayList<>();
-        params.add(new BasicNameValuePair("name", route.name()));
-        params.add(new BasicNameValuePair("rule", route.rule()));
-        params.add(new BasicNameValuePair("description", route.description()));
-        params.add(new BasicNameValuePair("queues", String.join(",", route.queues())));
-        params.add(new BasicNameValuePair("enabled", Boolean.toString(route.enabled())));
-        params.add(new BasicNameValuePair("uuid", route.uuid()));
-        return params;
+    private static List<Route> convert(RoutesList routes, RouteTransform transform, boolean skipWithoutQueues) {
+        var selected = routes.routes();
+        if (skipWithoutQueues) {
+            selected = new ArrayList<>(selected.size());
+            for (var route : routes.routes()) {
+                if (!route.queues().isEmpty()) {
+                    selected.add(route);
+                }
+            }
+        }
+        return ParallelTransform.DEFAULT.applyAll(selected, transform);
     }
 
     static RoutesList marshalRoutes(String body) throws JsonProcessingException {
@@ -0,0 +1,141 @@
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+/**
+ * Applies a {@link RouteTransform} to a route table on a fork/join pool. Every route is transformed
+ * on its own, so the table is split into ranges that are transformed on all cores, and the results
+ * are written back by index to keep them in the order of the table. Tables smaller than the
+ * threshold are not worth the handoff and are transformed on the calling thread.
+ *
+ * With one thread per core the common pool does the work. Any other parallelism gets a pool of its
+ * own, started the first time a table is large enough and kept for every later table, so a run
+ * streaming its routes in chunks starts its threads once. Close the transform at the end of the run
+ * to stop them.
+ *
+ * Transforms run concurrently, so they must be thread safe, as the ones in {@link RouteTransforms} are.
+ */
+public final class ParallelTransform implements AutoCloseable {
+
+    public static final int DEFAULT_THRESHOLD = 4_096;
+    public static final ParallelTransform DEFAULT =
+            new ParallelTransform(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+
+    private final int parallelism;
+    private final int threshold;
+    private ForkJoinPool pool;
+
+    /**
+     * @param parallelism how many threads transform a table at most; 1 transforms on the calling thread
+     * @param threshold the smallest table that is transformed in parallel
+     * @throws IllegalArgumentException when parallelism or threshold is less than 1
+     */
+    public ParallelTransform(int parallelism, int threshold) {
+        if (parallelism < 1 || threshold < 1) {
+            throw new IllegalArgumentException("Parallelism and threshold must be at least 1.");
+        }
+        this.parallelism = parallelism;
+        this.threshold = threshold;
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the transformed routes, in the order of the given routes
+     */
+    public List<Route> applyAll(List<Route> routes, RouteTransform transform) {
+        var table = routes.toArray(new Route[0]);
+        if (parallelism == 1 || table.length < threshold) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = transform.apply(table[i]);
+            }
+            return Arrays.asList(table);
+        }
+        // Several ranges per thread, so a thread that finishes early can steal work from a slow one
+        int leafSize = Math.max(256, table.length / (parallelism * 8));
+        pool().invoke(new TransformRange(table, 0, table.length, leafSize, transform));
+        return Arrays.asList(table);
+    }
+
+    /**
+     * Reads the routes in chunks of the threshold, transforms each chunk with {@link #applyAll}, and
+     * hands every route with its transformed route to the consumer on the calling thread, in order.
+     */
+    public void forEach(Iterator<Route> routes, RouteTransform transform, BiConsumer<Route, Route> consumer) {
+        List<Route> chunk = new ArrayList<>(threshold);
+        while (routes.hasNext()) {
+            chunk.add(routes.next());
+            if (chunk.size() == threshold || !routes.hasNext()) {
+                var transformed = applyAll(chunk, transform);
+                for (int i = 0; i < chunk.size(); i++) {
+                    consumer.accept(chunk.get(i), transformed.get(i));
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    /**
+     * Stops the threads of a pool of its own; the common pool is left running.
+     */
+    @Override
+    public synchronized void close() {
+        if (pool != null && pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+        pool = null;
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = parallelism == Runtime.getRuntime().availableProcessors()
+                    ? ForkJoinPool.commonPool()
+                    : new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    private static final class TransformRange extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // ForkJoinTask is Serializable, but a range is never serialized
+
+        private final transient Route[] table;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final transient RouteTransform transform;
+
+        private TransformRange(Route[] table, int from, int to, int leafSize, RouteTransform transform) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.transform = transform;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                for (int i = from; i < to; i++) {
+                    table[i] = transform.apply(table[i]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TransformRange(table, from, middle, leafSize, transform),
+                    new TransformRange(table, middle, to, leafSize, transform));
+        }
+
+    }
+
+}
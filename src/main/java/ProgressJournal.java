@@ -0,0 +1,165 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-ahead record of the routes a run has applied, one uuid per line. Opening an existing
+ * journal loads the uuids it holds so a restarted run can skip them. A journal opened for a named
+ * run starts with a {@code # run <name>} line, and no other run can resume from it, so routes one
+ * conversion applied are never skipped by another. A {@code # backup <file>} line names the backup
+ * the run took of the original routes, so a resumed run keeps that backup rather than backing up
+ * routes it already changed. Writes are fsynced in batches,
+ * every {@code syncEvery} records or once a second, whichever comes first; a crash can therefore
+ * lose the last batch, which only means those idempotent PUTs are sent again.
+ */
+public class ProgressJournal implements Closeable {
+
+    private static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String RUN_PREFIX = "# run ";
+    private static final String BACKUP_PREFIX = "# backup ";
+
+    private final Path file;
+    private final Set<String> applied = new HashSet<>();
+    private final int syncEvery;
+    private final FileOutputStream fileOutput;
+    private final BufferedOutputStream output;
+    private String backup;
+    private int unsynced;
+    private long lastSync = System.nanoTime();
+
+    private ProgressJournal(Path file, int syncEvery, String run) throws IOException {
+        this.file = file;
+        this.syncEvery = syncEvery;
+        String writtenBy = null;
+        if (Files.exists(file)) {
+            try (var lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.startsWith(RUN_PREFIX)) {
+                        writtenBy = writtenBy == null ? line.substring(RUN_PREFIX.length()) : writtenBy;
+                    } else if (line.startsWith(BACKUP_PREFIX)) {
+                        backup = line.substring(BACKUP_PREFIX.length());
+                    } else if (!line.isBlank()) {
+                        applied.add(line);
+                    }
+                }
+            }
+            terminateLastLine(file);
+        }
+        if (run != null && !run.equals(writtenBy) && (writtenBy != null || !applied.isEmpty())) {
+            throw new IllegalStateException("The journal " + file + " was written by "
+                    + (writtenBy == null ? "an unnamed run" : writtenBy) + ", not by " + run
+                    + ". Finish or revert that run, or delete the journal, first.");
+        }
+        this.fileOutput = new FileOutputStream(file.toFile(), true);
+        this.output = new BufferedOutputStream(fileOutput);
+        if (run != null && writtenBy == null) {
+            output.write((RUN_PREFIX + run + "\n").getBytes(StandardCharsets.UTF_8));
+            sync();
+        }
+    }
+
+    /**
+     * Opens the journal whatever run wrote it, e.g. to revert the routes it records.
+     */
+    public static ProgressJournal open(Path file, int syncEvery) throws IOException {
+        return open(file, syncEvery, null);
+    }
+
+    /**
+     * Opens the journal of the named run, starting it if the file does not exist yet.
+     *
+     * @throws IllegalStateException when the journal was written by another run
+     */
+    public static ProgressJournal open(Path file, int syncEvery, String run) throws IOException {
+        if (syncEvery < 1) {
+            throw new IllegalArgumentException("Must sync at least every record. Was: " + syncEvery);
+        }
+        return new ProgressJournal(file, syncEvery, run);
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public synchronized boolean isApplied(String uuid) {
+        return applied.contains(uuid);
+    }
+
+    public synchronized int appliedCount() {
+        return applied.size();
+    }
+
+    /**
+     * The backup last recorded with {@link #recordBackup}, in the directory of the journal.
+     */
+    public synchronized Optional<Path> backup() {
+        return Optional.ofNullable(backup).map(file::resolveSibling);
+    }
+
+    /**
+     * Records the backup of the original routes the run took. It is synced at once, before any
+     * route is changed.
+     */
+    public synchronized void recordBackup(Path backup) throws IOException {
+        var name = backup.getFileName().toString();
+        if (name.equals(this.backup)) {
+            return;
+        }
+        this.backup = name;
+        output.write((BACKUP_PREFIX + name + "\n").getBytes(StandardCharsets.UTF_8));
+        sync();
+    }
+
+    public synchronized void record(String uuid) throws IOException {
+        if (!applied.add(uuid)) {
+            return;
+        }
+        output.write(uuid.getBytes(StandardCharsets.UTF_8));
+        output.write('\n');
+        unsynced++;
+        if (unsynced >= syncEvery || System.nanoTime() - lastSync >= SYNC_INTERVAL_NANOS) {
+            sync();
+        }
+    }
+
+    public synchronized void sync() throws IOException {
+        output.flush();
+        fileOutput.getChannel().force(false);
+        unsynced = 0;
+        lastSync = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        output.close();
+    }
+
+    /**
+     * A crash mid-write can leave a partial uuid without its newline; end that line so the next
+     * record starts on its own.
+     */
+    private static void terminateLastLine(Path file) throws IOException {
+        try (var journal = new RandomAccessFile(file.toFile(), "rw")) {
+            long length = journal.length();
+            if (length == 0) {
+                return;
+            }
+            journal.seek(length - 1);
+            if (journal.read() != '\n') {
+                journal.write('\n');
+            }
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An emx-to-system-environment queue name. The system may contain dashes, the environment can not.
+ * As an endpoint, system and environment are URL encoded, e.g. emx-to-cfis-dev:skim is
+ * cfis#dev%3Askim.
+ */
+public record QueueName(String system, String environment) {
+
+    private static final String PREFIX = "emx-to-";
+
+    /**
+     * @throws IllegalArgumentException when system or environment is empty, or the environment has a dash
+     */
+    public QueueName {
+        if (system.isEmpty() || environment.isEmpty() || environment.indexOf('-') >= 0) {
+            throw new IllegalArgumentException("Not a queue name: " + PREFIX + system + "-" + environment);
+        }
+    }
+
+    /**
+     * @return the queue name, or null when the queue is not in emx-to-system-environment form
+     */
+    public static QueueName parse(String queue) {
+        int dash = queue.lastIndexOf('-');
+        if (!queue.startsWith(PREFIX) || dash <= PREFIX.length() || dash == queue.length() - 1) {
+            return null;
+        }
+        return new QueueName(queue.substring(PREFIX.length(), dash), queue.substring(dash + 1));
+    }
+
+    /**
+     * @return the queue of an unqualified endpoint, or null when the endpoint has a qualifier or an
+     * environment with a dash, which have no queue name
+     * @throws IllegalArgumentException when the endpoint has an invalid %-escape
+     */
+    public static QueueName of(Endpoint endpoint) {
+        if (endpoint.qualifier() != null) {
+            return null;
+        }
+        var system = decode(endpoint.system());
+        var environment = decode(endpoint.environment());
+        return environment.indexOf('-') >= 0 ? null : new QueueName(system, environment);
+    }
+
+    public Endpoint toEndpoint() {
+        return Endpoint.of(encode(system), encode(environment), null);
+    }
+
+    @Override
+    public String toString() {
+        return PREFIX + system + "-" + environment;
+    }
+
+    /**
+     * URLEncoder.encode, returning the name itself when it has nothing to escape, as almost all do.
+     */
+    private static String encode(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.' || c == '*')) {
+                return URLEncoder.encode(name, StandardCharsets.UTF_8);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * URLDecoder.decode, returning the name itself when it has nothing to unescape.
+     */
+    private static String decode(String name) {
+        return name.indexOf('%') < 0 && name.indexOf('+') < 0 ? name : URLDecoder.decode(name, StandardCharsets.UTF_8);
+    }
+
+}
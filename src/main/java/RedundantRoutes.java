@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Routes that deliver nothing another route does not already deliver. Routes are grouped by their
+ * queues, in any form, and within a group by their {@link RuleCanonicalizer canonical} rule:
+ *
+ * <ul>
+ *   <li>duplicates have the same canonical rule and queues; all but one of them can go</li>
+ *   <li>a subsumed route has the same queues as an enabled route whose rule matches every message
+ *       the subsumed route's rule matches, and can go as well</li>
+ * </ul>
+ *
+ * A route naming an endpoint in one form is subsumed by a route naming it in both forms, the pair
+ * convertEndpointPattern writes, and never the other way round: the pair route is the one to keep.
+ */
+public final class RedundantRoutes {
+
+    /**
+     * @param routes routes with the same canonical rule and queues, in table order
+     */
+    public record Duplicates(String canonicalRule, List<Route> routes) {
+    }
+
+    public record Subsumed(Route route, Route by) {
+    }
+
+    private final List<Duplicates> duplicates = new ArrayList<>();
+    private final List<Subsumed> subsumed = new ArrayList<>();
+    private final List<Route> invalid = new ArrayList<>();
+    private int routeCount;
+
+    private RedundantRoutes() {
+    }
+
+    /**
+     * @param queueEnvironment the environment of the lane, which the core queues deliver to
+     */
+    public static RedundantRoutes analyze(Collection<Route> routes, String queueEnvironment) {
+        var analysis = new RedundantRoutes();
+        analysis.routeCount = routes.size();
+        // queues -> canonical rule -> routes
+        Map<String, Map<String, List<Route>>> groups = new LinkedHashMap<>();
+        Map<String, RuleNode> canonicalRules = new LinkedHashMap<>();
+        for (var route : routes) {
+            RuleNode canonical;
+            try {
+                canonical = RuleCanonicalizer.canonical(CompiledRule.of(route.rule()).root());
+            } catch (IllegalArgumentException e) {
+                analysis.invalid.add(route);
+                continue;
+            }
+            var text = canonical.toString();
+            canonicalRules.putIfAbsent(text, canonical);
+            groups.computeIfAbsent(queues(route, queueEnvironment), queues -> new LinkedHashMap<>())
+                    .computeIfAbsent(text, rule -> new ArrayList<>())
+                    .add(route);
+        }
+        for (var group : groups.values()) {
+            var subsumedRules = analysis.findSubsumed(group, canonicalRules);
+            for (var entry : group.entrySet()) {
+                if (entry.getValue().size() > 1 && !subsumedRules.contains(entry.getKey())) {
+                    analysis.duplicates.add(new Duplicates(entry.getKey(), List.copyOf(entry.getValue())));
+                }
+            }
+        }
+        return analysis;
+    }
+
+    public List<Duplicates> duplicates() {
+        return duplicates;
+    }
+
+    public List<Subsumed> subsumed() {
+        return subsumed;
+    }
+
+    /**
+     * Routes whose rule could not be parsed, and so were not analyzed.
+     */
+    public List<Route> invalid() {
+        return invalid;
+    }
+
+    /**
+     * How many routes could be removed without changing where any message is delivered.
+     */
+    public int redundantCount() {
+        int count = subsumed.size();
+        for (var duplicate : duplicates) {
+            count += duplicate.routes().size() - 1;
+        }
+        return count;
+    }
+
+    public String summary() {
+        return redundantCount() + " of " + routeCount + " routes are redundant: " + duplicates.size()
+                + " groups of duplicates, " + subsumed.size() + " subsumed routes, "
+                + invalid.size() + " routes with invalid rules skipped.";
+    }
+
+    public void write(Writer out) throws IOException {
+        for (var duplicate : duplicates) {
+            out.write("duplicates: " + duplicate.canonicalRule() + "\n");
+            for (var route : duplicate.routes()) {
+                out.write("    " + route.uuid() + " " + route.name() + (route.enabled() ? "" : " (disabled)") + "\n");
+            }
+        }
+        for (var route : subsumed) {
+            out.write("subsumed: " + route.route().uuid() + " " + route.route().name()
+                    + " by " + route.by().uuid() + " " + route.by().name() + "\n");
+        }
+        out.write(summary() + "\n");
+    }
+
+    /**
+     * Compares every canonical rule of a queue group with every other, so it is quadratic in the
+     * number of distinct rules delivering to the same queues.
+     *
+     * @return the canonical rules that were subsumed
+     */
+    private Set<String> findSubsumed(Map<String, List<Route>> group, Map<String, RuleNode> canonicalRules) {
+        Set<String> subsumedRules = new HashSet<>();
+        List<String> rules = new ArrayList<>(group.keySet());
+        for (int i = 0; i < rules.size(); i++) {
+            var rule = canonicalRules.get(rules.get(i));
+            for (int j = 0; j < rules.size(); j++) {
+                if (i == j) {
+                    continue;
+                }
+                var by = firstEnabled(group.get(rules.get(j)));
+                var broader = canonicalRules.get(rules.get(j));
+                // Rules that imply each other are subsumed by the one that comes first
+                if (by != null && RuleCanonicalizer.implies(rule, broader)
+                        && (j < i || !RuleCanonicalizer.implies(broader, rule))) {
+                    for (var route : group.get(rules.get(i))) {
+                        subsumed.add(new Subsumed(route, by));
+                    }
+                    subsumedRules.add(rules.get(i));
+                    break;
+                }
+            }
+        }
+        return subsumedRules;
+    }
+
+    private static Route firstEnabled(List<Route> routes) {
+        for (var route : routes) {
+            if (route.enabled()) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static String queues(Route route, String queueEnvironment) {
+        var queues = new TreeSet<String>();
+        for (var queue : route.queues()) {
+            queues.add(EndpointIndex.normalize(queue, queueEnvironment));
+        }
+        return String.join(",", queues);
+    }
+
+}
@@ -0,0 +1,70 @@
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a route manager call is retried and how long to wait first. Delays use full
+ * jitter exponential backoff, and never undercut a Retry-After the server asked for.
+ */
+public record RetryPolicy(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+
+    public static final RetryPolicy DEFAULT =
+            new RetryPolicy(6, Duration.ofMillis(200), Duration.ofSeconds(30));
+
+    private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("GET", "HEAD", "PUT", "DELETE");
+
+    public RetryPolicy {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("There must be at least one attempt. Was: " + maxAttempts);
+        }
+    }
+
+    public boolean canRetry(String method, int attempt) {
+        return attempt < maxAttempts && IDEMPOTENT_METHODS.contains(method);
+    }
+
+    public static boolean isRetryable(int statusCode) {
+        return RETRYABLE_STATUS_CODES.contains(statusCode);
+    }
+
+    public static boolean isThrottled(int statusCode) {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * @param attempt the attempt that just failed, starting at 1
+     * @param retryAfter the server's Retry-After, if it sent one
+     */
+    public Duration delay(int attempt, Optional<Duration> retryAfter) {
+        long ceiling = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(attempt - 1, 30));
+        var jittered = Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        return retryAfter.filter(after -> after.compareTo(jittered) > 0).orElse(jittered);
+    }
+
+    /**
+     * Parses a Retry-After header, which is either a number of seconds or an HTTP date.
+     */
+    public static Optional<Duration> parseRetryAfter(Optional<String> header) {
+        if (header.isEmpty()) {
+            return Optional.empty();
+        }
+        var value = header.get().trim();
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value))));
+        } catch (NumberFormatException e) {
+            try {
+                var date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                var wait = Duration.between(ZonedDateTime.now(date.getZone()), date);
+                return Optional.of(wait.isNegative() ? Duration.ZERO : wait);
+            } catch (DateTimeParseException ignored) {
+                return Optional.empty();
+            }
+        }
+    }
+
+}
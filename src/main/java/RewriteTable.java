@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces many words of a rule at once, e.g. header names with the endpoint fields they became.
+ * The words are compiled into one Aho-Corasick automaton, so a rule is rewritten in a single scan
+ * however many words the table has. A word only matches as a whole: a word that starts or ends
+ * with a field character must not be next to another one, so emxSourceSystem does not match in
+ * myemxSourceSystem. Quoted values are skipped. Where matches overlap, the leftmost, then the
+ * longest, wins.
+ *
+ * Tables can be loaded from a properties file of word=replacement lines:
+ *
+ * <pre>
+ * emxSourceSystem=endpoint.system
+ * emxSourceEnvironment=endpoint.env
+ * </pre>
+ */
+public final class RewriteTable {
+
+    private static final int ASCII = 128;
+
+    private final String[] words;
+    private final String[] replacements;
+    private final int[] next;
+    private final List<Map<Character, Integer>> children;
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+
+    private RewriteTable(Map<String, String> table) {
+        words = table.keySet().toArray(new String[0]);
+        replacements = table.values().toArray(new String[0]);
+        children = new ArrayList<>();
+        children.add(new HashMap<>());
+        List<Integer> outputs = new ArrayList<>();
+        outputs.add(-1);
+        for (int word = 0; word < words.length; word++) {
+            int node = 0;
+            for (int i = 0; i < words[word].length(); i++) {
+                var child = children.get(node).get(words[word].charAt(i));
+                if (child == null) {
+                    child = children.size();
+                    children.get(node).put(words[word].charAt(i), child);
+                    children.add(new HashMap<>());
+                    outputs.add(-1);
+                }
+                node = child;
+            }
+            outputs.set(node, word);
+        }
+        int nodes = children.size();
+        fail = new int[nodes];
+        output = outputs.stream().mapToInt(Integer::intValue).toArray();
+        outputLink = new int[nodes];
+        next = new int[nodes * ASCII];
+        Arrays.fill(outputLink, -1);
+        // Breadth first, so the failure link of a node is complete before its children need it
+        var queue = new ArrayDeque<Integer>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (var edge : children.get(node).entrySet()) {
+                int child = edge.getValue();
+                fail[child] = node == 0 ? 0 : step(fail[node], edge.getKey());
+                outputLink[child] = output[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+            for (char c = 0; c < ASCII; c++) {
+                var child = children.get(node).get(c);
+                next[node * ASCII + c] = child != null ? child : node == 0 ? 0 : next[fail[node] * ASCII + c];
+            }
+        }
+    }
+
+    /**
+     * @param table replacement per word, in any order
+     * @throws IllegalArgumentException for an empty word or a word with a quote
+     */
+    public static RewriteTable of(Map<String, String> table) {
+        for (var word : table.keySet()) {
+            if (word.isEmpty() || word.indexOf('"') >= 0) {
+                throw new IllegalArgumentException("Can not rewrite '" + word + "'. Words must not be empty or quoted.");
+            }
+        }
+        return new RewriteTable(new LinkedHashMap<>(table));
+    }
+
+    public static RewriteTable load(Path file) throws IOException {
+        var properties = Lane.readProperties(file);
+        Map<String, String> table = new LinkedHashMap<>();
+        for (var word : properties.stringPropertyNames()) {
+            table.put(word.trim(), properties.getProperty(word).trim());
+        }
+        return of(table);
+    }
+
+    /**
+     * A transform that rewrites the rule of a route.
+     */
+    public RouteTransform onRules() {
+        return route -> RouteTransforms.withRule(route, rewrite(route.rule()));
+    }
+
+    /**
+     * @return the rewritten text, or the same string when no word of the table is in it
+     */
+    public String rewrite(String text) {
+        // matched[start] is 1 + the longest word matching at start
+        int[] matched = null;
+        int state = 0;
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+                continue;
+            } else if (c == '"') {
+                quoted = true;
+                state = 0;
+                continue;
+            }
+            state = c < ASCII ? next[state * ASCII + c] : step(state, c);
+            for (int node = output[state] >= 0 ? state : outputLink[state]; node >= 0; node = outputLink[node]) {
+                int word = output[node];
+                int start = i + 1 - words[word].length();
+                if (isWhole(text, words[word], start, i + 1)) {
+                    if (matched == null) {
+                        matched = new int[text.length()];
+                    }
+                    if (matched[start] == 0 || words[matched[start] - 1].length() < words[word].length()) {
+                        matched[start] = word + 1;
+                    }
+                }
+            }
+        }
+        if (matched == null) {
+            return text;
+        }
+        var rewritten = new StringBuilder(text.length() + 16);
+        int copied = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (matched[i] > 0) {
+                int word = matched[i] - 1;
+                rewritten.append(text, copied, i).append(replacements[word]);
+                copied = i + words[word].length();
+                i = copied - 1;
+            }
+        }
+        return rewritten.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * The automaton step for characters outside the ASCII table.
+     */
+    private int step(int state, char c) {
+        for (int node = state; ; node = fail[node]) {
+            var child = children.get(node).get(c);
+            if (child != null) {
+                return child;
+            } else if (node == 0) {
+                return 0;
+            }
+        }
+    }
+
+    private static boolean isWhole(String text, String word, int start, int end) {
+        if (RuleParser.isFieldChar(word.charAt(0)) && start > 0 && RuleParser.isFieldChar(text.charAt(start - 1))) {
+            return false;
+        }
+        return !RuleParser.isFieldChar(word.charAt(word.length() - 1))
+                || end == text.length() || !RuleParser.isFieldChar(text.charAt(end));
+    }
+
+}
@@ -1,3 +1,5 @@
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import java.util.List;
 import java.util.Objects;
 
@@ -7,7 +9,7 @@ public record Route(
       String rule,
       String description,
       boolean enabled,
-      List<String> queues,
+      @JsonDeserialize(contentUsing = Symbols.Deserializer.class) List<String> queues,
       String createdDate,
       String modifiedDate) {
     public Route{
@@ -0,0 +1,190 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A route backup written by {@link RouteBackupWriter}, read through a memory mapped file. The layout is
+ *
+ * <pre>
+ * "RTBK" version
+ * (compressedLength rawLength deflatedRouteJson)*       one record per route
+ * count (uuidLength uuid offset)*                     uuid to record offset index
+ * indexOffset "RTBK"
+ * </pre>
+ *
+ * Records are compressed one by one, so a single route is read with one seek through the index
+ * without inflating the rest. A backup left without an index by an interrupted run is indexed by
+ * walking its records instead.
+ */
+public class RouteBackup implements Closeable, Iterable<Route> {
+
+    static final byte[] MAGIC = {'R', 'T', 'B', 'K'};
+    static final int VERSION = 1;
+    static final String EXTENSION = ".routes";
+    static final int RECORD_HEADER = 8;
+    private static final int HEADER = MAGIC.length + 1;
+    private static final int FOOTER = 8 + MAGIC.length;
+
+    private final ObjectMapper mapper;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Integer> index;
+    private final Inflater inflater = new Inflater(true);
+
+    private RouteBackup(ObjectMapper mapper, FileChannel channel) throws IOException {
+        this.mapper = mapper;
+        this.channel = channel;
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Backups over 2GB are not supported. Size: " + channel.size());
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.limit() < HEADER || !hasMagic(buffer, 0) || buffer.get(MAGIC.length) != VERSION) {
+            throw new IllegalStateException("Not a version " + VERSION + " route backup.");
+        }
+        this.index = hasIndex() ? readIndex() : scanRecords();
+    }
+
+    public static RouteBackup open(ObjectMapper mapper, Path file) throws IOException {
+        var channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new RouteBackup(mapper, channel);
+        } catch (RuntimeException | IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Whether the file is a route backup rather than an older OriginalRoutes JSON backup.
+     */
+    public static boolean isBackup(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return Arrays.equals(input.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Set<String> uuids() {
+        return index.keySet();
+    }
+
+    public Optional<Route> get(String uuid) {
+        var offset = index.get(uuid);
+        return offset == null ? Optional.empty() : Optional.of(read(offset));
+    }
+
+    /**
+     * The routes in the order they were backed up, inflated one at a time.
+     */
+    @Override
+    public Iterator<Route> iterator() {
+        var offsets = index.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return offsets.hasNext();
+            }
+
+            @Override
+            public Route next() {
+                if (!offsets.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return read(offsets.next());
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    private synchronized Route read(int offset) {
+        int compressed = buffer.getInt(offset);
+        int raw = buffer.getInt(offset + 4);
+        var json = new byte[raw];
+        inflater.reset();
+        inflater.setInput(buffer.slice(offset + RECORD_HEADER, compressed));
+        try {
+            int inflated = inflater.inflate(json);
+            if (inflated != raw) {
+                throw new IllegalStateException("Backup record at " + offset + " is truncated.");
+            }
+            return mapper.readValue(json, Route.class);
+        } catch (DataFormatException | IOException e) {
+            throw new IllegalStateException("Could not read the backup record at " + offset + ". " + e.getMessage(), e);
+        }
+    }
+
+    private boolean hasIndex() {
+        int limit = buffer.limit();
+        if (limit < HEADER + 4 + FOOTER || !hasMagic(buffer, limit - MAGIC.length)) {
+            return false;
+        }
+        long indexOffset = buffer.getLong(limit - FOOTER);
+        return indexOffset >= HEADER && indexOffset <= limit - FOOTER - 4;
+    }
+
+    private Map<String, Integer> readIndex() {
+        var entries = buffer.duplicate().position((int) buffer.getLong(buffer.limit() - FOOTER));
+        int count = entries.getInt();
+        Map<String, Integer> offsets = new LinkedHashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            var uuid = new byte[entries.getShort()];
+            entries.get(uuid);
+            offsets.put(new String(uuid, StandardCharsets.UTF_8), (int) entries.getLong());
+        }
+        return offsets;
+    }
+
+    /**
+     * Indexes a backup without an index by reading each record's uuid, stopping at the first record
+     * that was not completely written.
+     */
+    private Map<String, Integer> scanRecords() {
+        Map<String, Integer> offsets = new LinkedHashMap<>();
+        int offset = HEADER;
+        while (offset + RECORD_HEADER <= buffer.limit()) {
+            int end = offset + RECORD_HEADER + buffer.getInt(offset);
+            if (end > buffer.limit() || end < offset) {
+                break;
+            }
+            offsets.put(read(offset).uuid(), offset);
+            offset = end;
+        }
+        return offsets;
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int at) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(at + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,133 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a route backup in the {@link RouteBackup} format. Each route is flushed as it is written,
+ * so it is on disk before the route is changed on the server. Until the writer is closed the
+ * backup is kept as {@code <name>.routes.partial}, which {@link RouteBackup} can still read.
+ * <p>
+ * The backup is named after a digest of its routes. If the directory already holds a backup with
+ * the same digest, closing the writer discards the new copy and {@link #file()} points at the
+ * existing one instead.
+ */
+public class RouteBackupWriter implements Closeable {
+
+    private static final int DIGEST_LENGTH = 16;
+
+    private final ObjectMapper mapper;
+    private final Path directory;
+    private final String name;
+    private final Path partial;
+    private final DataOutputStream output;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    private final MessageDigest digest;
+    private final Map<String, Long> index = new LinkedHashMap<>();
+    private byte[] buffer = new byte[8192];
+    private long position;
+    private Path file;
+
+    private RouteBackupWriter(ObjectMapper mapper, Path directory, String name) throws IOException {
+        this.mapper = mapper;
+        this.directory = directory;
+        this.name = name;
+        this.partial = directory.resolve(name + RouteBackup.EXTENSION + ".partial");
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)));
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        output.write(RouteBackup.MAGIC);
+        output.writeByte(RouteBackup.VERSION);
+        position = RouteBackup.MAGIC.length + 1;
+        this.file = partial;
+    }
+
+    /**
+     * @param name the backup name without extension, e.g. OriginalRoutes2024-02-16T14:05:23
+     */
+    public static RouteBackupWriter create(ObjectMapper mapper, Path directory, String name) throws IOException {
+        return new RouteBackupWriter(mapper, directory, name);
+    }
+
+    public void write(Route route) throws IOException {
+        if (index.containsKey(route.uuid())) {
+            throw new IllegalStateException("Route " + route.uuid() + " is already in the backup.");
+        }
+        var json = mapper.writeValueAsBytes(route);
+        digest.update(json);
+        deflater.reset();
+        deflater.setInput(json);
+        deflater.finish();
+        int compressed = 0;
+        while (!deflater.finished()) {
+            if (compressed == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            compressed += deflater.deflate(buffer, compressed, buffer.length - compressed);
+        }
+        index.put(route.uuid(), position);
+        output.writeInt(compressed);
+        output.writeInt(json.length);
+        output.write(buffer, 0, compressed);
+        output.flush();
+        position += RouteBackup.RECORD_HEADER + compressed;
+    }
+
+    /**
+     * @return the backup file; the partial file until the writer is closed
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Appends the uuid index and moves the backup to its final name, or drops it when an identical
+     * backup already exists.
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != partial) {
+            return;
+        }
+        long indexOffset = position;
+        output.writeInt(index.size());
+        for (var entry : index.entrySet()) {
+            var uuid = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            output.writeShort(uuid.length);
+            output.write(uuid);
+            output.writeLong(entry.getValue());
+        }
+        output.writeLong(indexOffset);
+        output.write(RouteBackup.MAGIC);
+        output.close();
+        deflater.end();
+
+        var fingerprint = HexFormat.of().formatHex(digest.digest()).substring(0, DIGEST_LENGTH);
+        var suffix = "-" + fingerprint + RouteBackup.EXTENSION;
+        try (var existing = Files.list(directory)) {
+            var duplicate = existing.filter(path -> path.getFileName().toString().endsWith(suffix)).findFirst();
+            if (duplicate.isPresent()) {
+                Files.delete(partial);
+                file = duplicate.get();
+                return;
+            }
+        }
+        file = Files.move(partial, directory.resolve(name + suffix));
+    }
+
+}
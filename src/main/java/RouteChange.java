@@ -0,0 +1,66 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A route before and after a transform. Only the fields sent to /updateroute count as a change.
+ */
+public record RouteChange(Route before, Route after) {
+
+    public RouteChange {
+        Objects.requireNonNull(before, "Original route cannot be null");
+        Objects.requireNonNull(after, "Transformed route cannot be null");
+    }
+
+    public String uuid() {
+        return after.uuid();
+    }
+
+    public boolean changed() {
+        return before != after
+                && (!Objects.equals(before.name(), after.name())
+                || !Objects.equals(before.rule(), after.rule())
+                || !Objects.equals(before.description(), after.description())
+                || before.enabled() != after.enabled()
+                || !Objects.equals(before.queues(), after.queues()));
+    }
+
+    public List<String> changedFields() {
+        List<String> fields = new ArrayList<>();
+        if (before == after) {
+            return fields;
+        }
+        if (!Objects.equals(before.name(), after.name())) {
+            fields.add("name");
+        }
+        if (!Objects.equals(before.rule(), after.rule())) {
+            fields.add("rule");
+        }
+        if (!Objects.equals(before.description(), after.description())) {
+            fields.add("description");
+        }
+        if (before.enabled() != after.enabled()) {
+            fields.add("enabled");
+        }
+        if (!Objects.equals(before.queues(), after.queues())) {
+            fields.add("queues");
+        }
+        return fields;
+    }
+
+    /**
+     * @param field one of {@link #changedFields()}
+     * @return the value of the field of the route, e.g. the queues list for "queues"
+     */
+    public static Object value(Route route, String field) {
+        return switch (field) {
+            case "name" -> route.name();
+            case "rule" -> route.rule();
+            case "description" -> route.description();
+            case "enabled" -> route.enabled();
+            case "queues" -> route.queues();
+            default -> throw new IllegalStateException("Unknown route field: " + field);
+        };
+    }
+
+}
@@ -0,0 +1,108 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Wraps the shared {@link HttpClient} for calls to emx-route-manager. Every call is rate limited,
+ * gated by an adaptive concurrency limit, and idempotent calls are retried with backoff when the
+ * server throttles or fails.
+ */
+public class RouteManagerClient {
+
+    private final HttpClient client;
+    private final String baseUri;
+    private final String authorization;
+    private final TokenBucket rateLimit;
+    private final RetryPolicy retryPolicy;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public RouteManagerClient(
+            HttpClient client,
+            String baseUri,
+            String authHeader,
+            TokenBucket rateLimit,
+            RetryPolicy retryPolicy,
+            AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.authorization =
+                "Basic " + Base64.getEncoder().encodeToString(authHeader.getBytes(StandardCharsets.UTF_8));
+        this.rateLimit = rateLimit;
+        this.retryPolicy = retryPolicy;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    public HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseUri + path))
+                .setHeader("Authorization", authorization);
+    }
+
+    public AdaptiveConcurrencyLimit concurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * Sends the request, retrying while the policy allows. The last response is returned even if
+     * it is still an error; an IOException is only thrown once the retries are used up.
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            HttpResponse<T> response = null;
+            IOException failure = null;
+            boolean overloaded = false;
+            concurrencyLimit.acquire();
+            long start = System.nanoTime();
+            try {
+                rateLimit.acquire();
+                start = System.nanoTime();
+                response = client.send(request, handler);
+                overloaded = RetryPolicy.isRetryable(response.statusCode());
+            } catch (IOException e) {
+                failure = e;
+                overloaded = true;
+            } finally {
+                concurrencyLimit.release(request.method() + " " + request.uri().getPath(), overloaded,
+                        System.nanoTime() - start);
+            }
+
+            if (!retryPolicy.canRetry(request.method(), attempt)) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            Optional<Duration> retryAfter = Optional.empty();
+            if (response != null) {
+                if (!RetryPolicy.isRetryable(response.statusCode())) {
+                    return response;
+                }
+                retryAfter = RetryPolicy.parseRetryAfter(response.headers().firstValue("Retry-After"));
+                if (RetryPolicy.isThrottled(response.statusCode()) && retryAfter.isPresent()) {
+                    rateLimit.pause(retryAfter.get());
+                }
+                discard(response);
+            }
+            Thread.sleep(retryPolicy.delay(attempt, retryAfter).toMillis());
+        }
+    }
+
+    private static void discard(HttpResponse<?> response) throws IOException {
+        if (response.body() instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IOException("Could not discard the response body.", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies several {@link RouteTransform}s to a route in one pass. Because each transform hands
+ * back the route it was given when it has nothing to change, a route none of them touch comes out
+ * as the same instance and nothing is allocated for it.
+ */
+public final class RoutePipeline implements RouteTransform {
+
+    private final RouteTransform[] transforms;
+
+    private RoutePipeline(List<RouteTransform> transforms) {
+        this.transforms = transforms.toArray(new RouteTransform[0]);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Route apply(Route route) {
+        var current = route;
+        for (var transform : transforms) {
+            current = transform.apply(current);
+        }
+        return current;
+    }
+
+    public List<Route> applyAll(List<Route> routes) {
+        List<Route> transformed = new ArrayList<>(routes.size());
+        for (var route : routes) {
+            transformed.add(apply(route));
+        }
+        return transformed;
+    }
+
+    public static final class Builder {
+
+        private final List<RouteTransform> transforms = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder then(RouteTransform transform) {
+            transforms.add(transform);
+            return this;
+        }
+
+        public RoutePipeline build() {
+            return new RoutePipeline(transforms);
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the routesList of a /routes payload one {@link Route} at a time, so only the route being
+ * processed is held in memory no matter how large the payload is.
+ */
+public class RouteStreamReader implements Iterator<Route>, Closeable {
+
+    private final JsonParser parser;
+    private final ObjectReader routeReader;
+    private Route next;
+
+    public RouteStreamReader(ObjectMapper mapper, InputStream input) throws IOException {
+        this.parser = mapper.getFactory().createParser(input);
+        this.routeReader = mapper.readerFor(Route.class);
+        if (seekRoutesList()) {
+            advance();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public Route next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        var route = next;
+        try {
+            advance();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the next route. " + e.getMessage(), e);
+        }
+        return route;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private boolean seekRoutesList() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("Expected a routes object but found " + parser.currentToken());
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var field = parser.getCurrentName();
+            var value = parser.nextToken();
+            if ("routesList".equals(field)) {
+                return value == JsonToken.START_ARRAY;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private void advance() throws IOException {
+        next = parser.nextToken() == JsonToken.START_OBJECT ? routeReader.readValue(parser) : null;
+    }
+
+}
@@ -0,0 +1,12 @@
+/**
+ * A single change to a route, such as rewriting its rule or its queues.
+ */
+@FunctionalInterface
+public interface RouteTransform {
+
+    /**
+     * @return the changed route, or the same instance when this transform does not apply to it
+     */
+    Route apply(Route route);
+
+}
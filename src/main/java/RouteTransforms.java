@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * The route migrations this tool knows how to run. Each one returns the route it was given when it
+ * has nothing to change, so they can be chained in a {@link RoutePipeline}.
+ */
+public final class RouteTransforms {
+
+    private static final String ENDPOINT_TERM = "endpoint==\"";
+    private static final Map<String, String> CORE_ENDPOINTS = Map.of(
+            "emx-trash", "emx-core-trash",
+            "emx-to-archive-core", "emx-core-archive",
+            "emx-to-emx-healthcheck", "emx-core-healthcheck");
+    private static final Map<String, String> CORE_QUEUES = Map.of(
+            "emx-core-trash", "emx-trash",
+            "emx-core-archive", "emx-to-archive-core",
+            "emx-core-healthcheck", "emx-to-emx-healthcheck");
+
+    public static final RouteTransform RULE_TO_ENDPOINT_PARTS = RewriteTable.of(Map.of(
+            "emxSourceSystem", "endpoint.system",
+            "emxSourceEnvironment", "endpoint.env")).onRules();
+
+    public static final RouteTransform RULE_TO_HEADERS = RewriteTable.of(Map.of(
+            "endpoint.system", "emxSourceSystem",
+            "endpoint.env", "emxSourceEnvironment")).onRules();
+
+    public static final RouteTransform ENDPOINT_PATTERN = RouteTransforms::convertEndpointPattern;
+
+    public static final RouteTransform CLEANUP_ENDPOINT_PATTERN = RouteTransforms::cleanupEndpointPattern;
+
+    public static final RouteTransform SWITCH_TARGETS_TO_QUALIFIER_PATTERN =
+            route -> withQueues(route, RouteTransforms::toQualifierFirst);
+
+    private RouteTransforms() {
+    }
+
+    /**
+     * Translations are memoized per transform, so each distinct queue is only translated once a run.
+     */
+    public static RouteTransform queuesToEndpoints(String queueEnvironment) {
+        Map<String, String> endpoints = new ConcurrentHashMap<>();
+        return route -> withQueues(route,
+                queue -> endpoints.computeIfAbsent(queue, q -> Symbols.intern(toEndpoint(q, queueEnvironment))));
+    }
+
+    public static RouteTransform endpointsToQueues(String queueEnvironment) {
+        Map<String, String> queues = new ConcurrentHashMap<>();
+        return route -> withQueues(route,
+                endpoint -> queues.computeIfAbsent(endpoint, e -> Symbols.intern(toQueue(e, queueEnvironment))));
+    }
+
+    /**
+     * The endpoint a queue converts to: emx-trash, emx-to-archive-core and emx-to-emx-healthcheck
+     * to their emx-core endpoint in the queue environment, emx-to-system-environment to
+     * system#environment. Endpoints and other names are returned as they are.
+     */
+    static String toEndpoint(String queue, String queueEnvironment) {
+        var core = CORE_ENDPOINTS.get(queue);
+        if (core != null) {
+            return core + "#" + queueEnvironment;
+        } else if (queue.indexOf('#') >= 0) {
+            return queue;
+        }
+        var name = QueueName.parse(queue);
+        return name == null ? queue : name.toEndpoint().toString();
+    }
+
+    private static String toQueue(String endpoint, String queueEnvironment) {
+        var parsed = Endpoint.parse(endpoint);
+        if (parsed == null || endpoint.contains("emx-to")) {
+            return endpoint;
+        } else if (parsed.qualifier() == null && parsed.environment().equals(queueEnvironment)) {
+            var core = CORE_QUEUES.get(parsed.system());
+            if (core != null) {
+                return core;
+            }
+        }
+        var queue = QueueName.of(parsed);
+        return queue == null ? endpoint : queue.toString();
+    }
+
+    /**
+     * Turns the last endpoint=="sys#env/qualifier" term into the backwards compatible
+     * (endpoint=="sys/qualifier#env" || endpoint=="sys#env/qualifier") pair, unless some endpoint
+     * term of the rule already uses the qualifier first form.
+     */
+    private static Route convertEndpointPattern(Route route) {
+        var rule = route.rule();
+        int lastValue = -1;
+        int lastEnd = -1;
+        for (int start = nextEndpointTerm(rule, 0); start >= 0; start = nextEndpointTerm(rule, lastEnd + 1)) {
+            int value = start + ENDPOINT_TERM.length();
+            int end = closingQuote(rule, value);
+            if (end < 0) {
+                break;
+            }
+            if (isQualifierFirst(rule, value, end)) {
+                return route;
+            }
+            lastValue = value;
+            lastEnd = end;
+        }
+        if (lastValue < 0) {
+            return route;
+        }
+        var endpoint = rule.substring(lastValue, lastEnd);
+        var qualifierFirst = toQualifierFirst(endpoint);
+        if (qualifierFirst == endpoint) {
+            return route;
+        }
+        var replacement = "(endpoint==\"" + qualifierFirst + "\" || endpoint==\"" + endpoint + "\")";
+        var converted = new StringBuilder(rule.length() + replacement.length());
+        int copied = 0;
+        for (int start = nextEndpointTerm(rule, 0); start >= 0; start = nextEndpointTerm(rule, copied)) {
+            int value = start + ENDPOINT_TERM.length();
+            int end = closingQuote(rule, value);
+            if (end < 0) {
+                break;
+            }
+            if (end - value == endpoint.length() && rule.startsWith(endpoint, value)) {
+                converted.append(rule, copied, start).append(replacement);
+            } else {
+                converted.append(rule, copied, end + 1);
+            }
+            copied = end + 1;
+        }
+        return withRule(route, converted.append(rule, copied, rule.length()).toString());
+    }
+
+    /**
+     * Collapses every (endpoint=="sys/qualifier#env" || endpoint=="sys#env/qualifier") pair left by
+     * {@link #ENDPOINT_PATTERN} into its qualifier first term. Pairs naming two different endpoints
+     * are left alone.
+     */
+    private static Route cleanupEndpointPattern(Route route) {
+        var rule = route.rule();
+        StringBuilder cleaned = null;
+        int copied = 0;
+        int start = nextEndpointTerm(rule, 0);
+        while (start >= 0) {
+            int firstValue = start + ENDPOINT_TERM.length();
+            int firstEnd = closingQuote(rule, firstValue);
+            if (firstEnd < 0) {
+                break;
+            }
+            int next = firstEnd + 1;
+            int open = skipWhitespaceBackwards(rule, start - 1);
+            int or = skipWhitespace(rule, firstEnd + 1);
+            if (open >= copied && rule.charAt(open) == '(' && rule.startsWith("||", or)
+                    && isQualifierFirst(rule, firstValue, firstEnd)) {
+                int second = skipWhitespace(rule, or + 2);
+                int secondValue = second + ENDPOINT_TERM.length();
+                int secondEnd = rule.startsWith(ENDPOINT_TERM, second) ? closingQuote(rule, secondValue) : -1;
+                int close = secondEnd < 0 ? -1 : skipWhitespace(rule, secondEnd + 1);
+                if (close >= 0 && close < rule.length() && rule.charAt(close) == ')'
+                        && toQualifierFirst(rule.substring(secondValue, secondEnd))
+                        .equals(rule.substring(firstValue, firstEnd))) {
+                    if (cleaned == null) {
+                        cleaned = new StringBuilder(rule.length());
+                    }
+                    cleaned.append(rule, copied, open).append(rule, start, firstEnd + 1);
+                    copied = close + 1;
+                    next = close + 1;
+                }
+            }
+            start = nextEndpointTerm(rule, next);
+        }
+        if (cleaned == null) {
+            return route;
+        }
+        return withRule(route, cleaned.append(rule, copied, rule.length()).toString());
+    }
+
+    /**
+     * Rewrites sys#env/qualifier as sys/qualifier#env.
+     *
+     * @return the rewritten endpoint, or the same string when it is not in sys#env/qualifier form
+     */
+    static String toQualifierFirst(String endpoint) {
+        var parsed = Endpoint.parse(endpoint);
+        return parsed == null || parsed.qualifier() == null || parsed.isQualifierFirst()
+                ? endpoint
+                : parsed.qualifierFirst();
+    }
+
+    /**
+     * Whether rule[from, to) is a sys/qualifier#env endpoint.
+     */
+    private static boolean isQualifierFirst(String rule, int from, int to) {
+        int slash = from + 1;
+        while (slash < to && rule.charAt(slash) != '/') {
+            slash++;
+        }
+        for (int hash = slash + 2; hash < to - 1; hash++) {
+            if (rule.charAt(hash) == '#') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return where the next endpoint=="..." term at or after from starts, or -1
+     */
+    private static int nextEndpointTerm(String rule, int from) {
+        int start = rule.indexOf(ENDPOINT_TERM, from);
+        while (start > 0 && RuleParser.isFieldChar(rule.charAt(start - 1))) {
+            start = rule.indexOf(ENDPOINT_TERM, start + 1);
+        }
+        return start;
+    }
+
+    /**
+     * @return the index of the quote closing a value that starts at from, or -1
+     */
+    private static int closingQuote(String rule, int from) {
+        for (int i = from; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String rule, int from) {
+        int i = from;
+        while (i < rule.length() && Character.isWhitespace(rule.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespaceBackwards(String rule, int from) {
+        int i = from;
+        while (i >= 0 && Character.isWhitespace(rule.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    static Route withRule(Route route, String rule) {
+        if (rule.equals(route.rule())) {
+            return route;
+        }
+        return new Route(route.uuid(),
+                route.name(),
+                rule,
+                route.description(),
+                route.enabled(),
+                route.queues(),
+                route.createdDate(),
+                route.modifiedDate());
+    }
+
+    /**
+     * Maps every queue of the route, only copying the queue list once a queue actually changes.
+     */
+    static Route withQueues(Route route, UnaryOperator<String> mapping) {
+        var queues = route.queues();
+        List<String> updatedQueues = null;
+        for (int i = 0; i < queues.size(); i++) {
+            var queue = queues.get(i);
+            var updated = mapping.apply(queue);
+            if (updatedQueues == null && !updated.equals(queue)) {
+                updatedQueues = new ArrayList<>(queues.size());
+                updatedQueues.addAll(queues.subList(0, i));
+            }
+            if (updatedQueues != null) {
+                updatedQueues.add(updated);
+            }
+        }
+        if (updatedQueues == null) {
+            return route;
+        }
+        return new Route(route.uuid(),
+                route.name(),
+                route.rule(),
+                route.description(),
+                route.enabled(),
+                updatedQueues,
+                route.createdDate(),
+                route.modifiedDate());
+    }
+
+}
@@ -0,0 +1,278 @@
+import java.io.IOException;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends route updates from a pool of workers sized to the client's maximum concurrency. The client
+ * decides how many are actually in flight. Routes are grouped into /updateroutes batches of up to
+ * batchSize routes; once the server answers a batch with 404, 405 or 501 every route is sent as its
+ * own /updateroute PUT instead. A batch the server rejects as a whole, e.g. with 413 or 500, is sent
+ * again one route at a time, so a bad route only fails itself. Every route gets an
+ * {@link UpdateResult}; a failed update is
+ * recorded rather than aborting the run. With a {@link ProgressJournal}, routes the journal already
+ * holds are not sent again and each successful update is journalled. With an {@link AuditLog},
+ * every route sent is logged with its changes, status code and latency. An updater is used for a
+ * single run.
+ */
+public class RouteUpdater {
+
+    /**
+     * @param journal progress of an earlier attempt at this run, or null to update every route
+     * @param batchSize the most routes sent in one request; 1 sends every route on its own
+     * @param metrics where the latency of every update request and the outcome of every route is
+     *                recorded, or null when they are not needed
+     * @param audit where every route sent is logged with its changes, or null for no log
+     */
+    public record Options(ProgressJournal journal, int batchSize, RunMetrics metrics, AuditLog audit) {
+
+        /**
+         * Every route on its own, without journal, metrics or audit log.
+         */
+        public static final Options DEFAULT = new Options(null, 1, null, null);
+
+        /**
+         * @throws IllegalArgumentException when batchSize is less than 1
+         */
+        public Options {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("Batches must hold at least one route. Was: " + batchSize);
+            }
+        }
+
+    }
+
+    private static final Set<Integer> BATCH_UNSUPPORTED = Set.of(404, 405, 501);
+
+    private final RouteManagerClient client;
+    private final ProgressJournal journal;
+    private final RunMetrics metrics;
+    private final AuditLog audit;
+    private final Map<String, Route> originals = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final ExecutorService workers;
+    private final Semaphore queued;
+    private final List<CompletableFuture<List<UpdateResult>>> pending = new ArrayList<>();
+    private volatile boolean batchSupported;
+    private List<Route> batch = new ArrayList<>();
+    private int skipped;
+    private int resumed;
+
+    public RouteUpdater(RouteManagerClient client, Options options) {
+        this.client = client;
+        this.journal = options.journal();
+        this.metrics = options.metrics() == null ? new RunMetrics("default") : options.metrics();
+        this.audit = options.audit();
+        this.batchSize = options.batchSize();
+        this.batchSupported = batchSize > 1;
+        int workerCount = client.concurrencyLimit().maxLimit();
+        var threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            var thread = new Thread(runnable, "route-updater-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.queued = new Semaphore(workerCount * 2);
+    }
+
+    public UpdateReport updateAll(List<Route> routes) {
+        for (var route : routes) {
+            submit(route);
+        }
+        return finish();
+    }
+
+    /**
+     * Queues the transformed route for update if it differs from the original, otherwise counts it
+     * as skipped.
+     */
+    public void submit(RouteChange change) {
+        if (change.changed()) {
+            submit(change.before(), change.after());
+        } else {
+            skipped++;
+        }
+    }
+
+    /**
+     * Queues a route for update, blocking while enough updates are already waiting.
+     */
+    public void submit(Route route) {
+        submit(null, route);
+    }
+
+    /**
+     * @param original the route before the update, for the audit log, or null when it is not known
+     */
+    private void submit(Route original, Route route) {
+        if (journal != null && journal.isApplied(route.uuid())) {
+            resumed++;
+            return;
+        }
+        if (audit != null && original != null) {
+            originals.put(route.uuid(), original);
+        }
+        batch.add(route);
+        if (batch.size() >= batchSize) {
+            dispatch();
+        }
+    }
+
+    /**
+     * Waits for every submitted update to complete and reports the outcome of each.
+     */
+    public UpdateReport finish() {
+        dispatch();
+        List<UpdateResult> results = new ArrayList<>();
+        for (var future : pending) {
+            results.addAll(future.join());
+        }
+        pending.clear();
+        workers.shutdown();
+        return new UpdateReport(results, skipped, resumed);
+    }
+
+    private void dispatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        var routes = batch;
+        batch = new ArrayList<>(batchSize);
+        try {
+            queued.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("There was an interruption while waiting to update a route.");
+        }
+        pending.add(CompletableFuture.supplyAsync(() -> update(routes), workers)
+                .whenComplete((result, error) -> queued.release()));
+    }
+
+    private void journal(UpdateResult result) {
+        if (journal == null || !result.succeeded()) {
+            return;
+        }
+        try {
+            journal.record(result.uuid());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not record route " + result.uuid() + " in the progress journal.", e);
+        }
+    }
+
+    private void audit(Route route, UpdateResult result, long latencyNanos) {
+        if (audit != null) {
+            audit.record(originals.remove(route.uuid()), route, result, latencyNanos);
+        }
+    }
+
+    private List<UpdateResult> update(List<Route> routes) {
+        if (routes.size() > 1 && batchSupported) {
+            long start = System.nanoTime();
+            var results = updateBatch(routes);
+            if (results != null) {
+                long latency = System.nanoTime() - start;
+                for (int i = 0; i < results.size(); i++) {
+                    journal(results.get(i));
+                    audit(routes.get(i), results.get(i), latency);
+                }
+                return results;
+            }
+        }
+        List<UpdateResult> results = new ArrayList<>(routes.size());
+        for (var route : routes) {
+            long start = System.nanoTime();
+            var result = update(route);
+            journal(result);
+            audit(route, result, System.nanoTime() - start);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * @return a result per route, or null when the routes have to be sent one at a time
+     */
+    private List<UpdateResult> updateBatch(List<Route> routes) {
+        var timing = metrics.startUpdate("/updateroutes", routes.size());
+        var request = client.request("/updateroutes")
+                .setHeader("Content-Type", "application/json")
+                .PUT(BodyPublishers.ofByteArray(BatchCodec.encode(routes)))
+                .build();
+        try {
+            var response = client.send(request, BodyHandlers.ofString());
+            if (BATCH_UNSUPPORTED.contains(response.statusCode())) {
+                // Not ended: the routes are counted when they are sent again one at a time
+                batchSupported = false;
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                // Not ended either: the batch failed as a whole, so its routes get a status of their own
+                return null;
+            }
+            var statuses = BatchCodec.decodeResults(response.body());
+            List<UpdateResult> results = new ArrayList<>(routes.size());
+            for (var route : routes) {
+                var status = statuses.get(route.uuid());
+                results.add(status == null
+                        ? new UpdateResult(route.uuid(), route.name(), UpdateResult.NO_RESPONSE,
+                                "Missing from the batch response")
+                        : new UpdateResult(route.uuid(), route.name(), status.statusCode(), status.message()));
+            }
+            return ended(timing, results);
+        } catch (IOException e) {
+            return ended(timing, failed(routes, UpdateResult.NO_RESPONSE, e.toString()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ended(timing, failed(routes, UpdateResult.NO_RESPONSE, "Interrupted"));
+        }
+    }
+
+    private static List<UpdateResult> ended(RunMetrics.Request timing, List<UpdateResult> results) {
+        int succeeded = 0;
+        for (var result : results) {
+            if (result.succeeded()) {
+                succeeded++;
+            }
+        }
+        timing.end(succeeded);
+        return results;
+    }
+
+    private static List<UpdateResult> failed(List<Route> routes, int statusCode, String message) {
+        List<UpdateResult> results = new ArrayList<>(routes.size());
+        for (var route : routes) {
+            results.add(new UpdateResult(route.uuid(), route.name(), statusCode, message));
+        }
+        return results;
+    }
+
+    private UpdateResult update(Route route) {
+        var timing = metrics.startUpdate("/updateroute", 1);
+        var result = send(route);
+        timing.end(result.succeeded() ? 1 : 0);
+        return result;
+    }
+
+    private UpdateResult send(Route route) {
+        var request = client.request("/updateroute").PUT(BodyPublishers.ofByteArray(FormEncoder.encode(route))).build();
+        try {
+            var response = client.send(request, BodyHandlers.ofString());
+            return new UpdateResult(route.uuid(), route.name(), response.statusCode(), response.body());
+        } catch (IOException e) {
+            return new UpdateResult(route.uuid(), route.name(), UpdateResult.NO_RESPONSE, e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new UpdateResult(route.uuid(), route.name(), UpdateResult.NO_RESPONSE, "Interrupted");
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out offline which queues a message would be routed to. Enabled routes are indexed by the
+ * header equalities their rule cannot match without, e.g. {@code emxSourceSystem=="cars"} in
+ * {@code emxSourceSystem=="cars" && emxDatatype=="vendor"}, so a message is only evaluated against
+ * routes that share one of its header values. Routes whose rule has no such equality are evaluated
+ * for every message.
+ */
+public class RoutingSimulator {
+
+    private static final TypeReference<Map<String, String>> HEADERS = new TypeReference<>() {
+    };
+
+    private final Route[] routes;
+    private final CompiledRule[] rules;
+    private final Map<String, Map<String, int[]>> index = new HashMap<>();
+    private final int[] unindexed;
+    private final List<Route> invalidRoutes = new ArrayList<>();
+    private final ThreadLocal<int[]> seen;
+    private final ThreadLocal<int[]> generation = ThreadLocal.withInitial(() -> new int[1]);
+
+    public RoutingSimulator(RoutesList routesList) {
+        List<Route> enabled = new ArrayList<>();
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (var route : routesList.routes()) {
+            if (!route.enabled()) {
+                continue;
+            }
+            try {
+                compiled.add(CompiledRule.of(route.rule()));
+                enabled.add(route);
+            } catch (IllegalArgumentException e) {
+                invalidRoutes.add(route);
+            }
+        }
+        this.routes = enabled.toArray(new Route[0]);
+        this.rules = compiled.toArray(new CompiledRule[0]);
+
+        Map<String, Map<String, List<Integer>>> buckets = new HashMap<>();
+        List<Integer> scanned = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) {
+            var keys = indexKeys(rules[i].root());
+            if (keys == null) {
+                scanned.add(i);
+                continue;
+            }
+            for (var key : keys) {
+                buckets.computeIfAbsent(key.field(), field -> new HashMap<>())
+                        .computeIfAbsent(key.value(), value -> new ArrayList<>())
+                        .add(i);
+            }
+        }
+        buckets.forEach((field, values) -> {
+            Map<String, int[]> byValue = new HashMap<>();
+            values.forEach((value, indexes) -> byValue.put(value, toArray(indexes)));
+            index.put(field, byValue);
+        });
+        this.unindexed = toArray(scanned);
+        this.seen = ThreadLocal.withInitial(() -> new int[routes.length]);
+    }
+
+    /**
+     * @return the routes a message with these headers matches, in route table order
+     */
+    public List<Route> match(Map<String, String> headers) {
+        int[] seenAt = seen.get();
+        int[] current = generation.get();
+        int stamp = ++current[0];
+        if (stamp == 0) {
+            Arrays.fill(seenAt, 0);
+            stamp = current[0] = 1;
+        }
+        int[] matched = new int[8];
+        int count = 0;
+        for (var field : index.entrySet()) {
+            var value = headers.get(field.getKey());
+            if (value == null) {
+                continue;
+            }
+            var candidates = field.getValue().get(value);
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (seenAt[candidate] != stamp) {
+                    seenAt[candidate] = stamp;
+                    if (rules[candidate].matches(headers)) {
+                        matched = append(matched, count++, candidate);
+                    }
+                }
+            }
+        }
+        for (int candidate : unindexed) {
+            if (rules[candidate].matches(headers)) {
+                matched = append(matched, count++, candidate);
+            }
+        }
+        Arrays.sort(matched, 0, count);
+        List<Route> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(routes[matched[i]]);
+        }
+        return matches;
+    }
+
+    /**
+     * @return the queues a message with these headers would be delivered to, without duplicates
+     */
+    public Set<String> resolve(Map<String, String> headers) {
+        Set<String> queues = new LinkedHashSet<>();
+        for (var route : match(headers)) {
+            queues.addAll(route.queues());
+        }
+        return queues;
+    }
+
+    /**
+     * Reads one JSON object of message headers per line and writes, per message, the matched route
+     * uuids and resolved queues as one JSON line.
+     *
+     * @return the number of messages replayed
+     */
+    public long replay(ObjectMapper mapper, Path messages, Path results) throws IOException {
+        long count = 0;
+        try (var input = mapper.readerFor(HEADERS).<Map<String, String>>readValues(messages.toFile());
+             var output = mapper.getFactory().createGenerator(Files.newBufferedWriter(results))) {
+            output.setRootValueSeparator(null);
+            while (input.hasNextValue()) {
+                var matches = match(input.nextValue());
+                output.writeStartObject();
+                output.writeArrayFieldStart("routes");
+                for (var route : matches) {
+                    output.writeString(route.uuid());
+                }
+                output.writeEndArray();
+                output.writeArrayFieldStart("queues");
+                Set<String> queues = new HashSet<>();
+                for (var route : matches) {
+                    for (var queue : route.queues()) {
+                        if (queues.add(queue)) {
+                            output.writeString(queue);
+                        }
+                    }
+                }
+                output.writeEndArray();
+                output.writeEndObject();
+                output.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Enabled routes left out of the simulation because their rule could not be parsed.
+     */
+    public List<Route> invalidRoutes() {
+        return invalidRoutes;
+    }
+
+    /**
+     * Header equalities of which a message must satisfy at least one to match the rule, or null
+     * when the rule can match without any, e.g. because of a negation.
+     */
+    static Set<IndexKey> indexKeys(RuleNode node) {
+        if (node instanceof RuleNode.Comparison comparison) {
+            return comparison.equal() ? Set.of(new IndexKey(comparison.field(), comparison.value())) : null;
+        }
+        if (node instanceof RuleNode.And and) {
+            Set<IndexKey> narrowest = null;
+            for (var term : and.terms()) {
+                var keys = indexKeys(term);
+                if (keys != null && (narrowest == null || keys.size() < narrowest.size())) {
+                    narrowest = keys;
+                }
+            }
+            return narrowest;
+        }
+        if (node instanceof RuleNode.Or or) {
+            Set<IndexKey> union = new HashSet<>();
+            for (var term : or.terms()) {
+                var keys = indexKeys(term);
+                if (keys == null) {
+                    return null;
+                }
+                union.addAll(keys);
+            }
+            return union;
+        }
+        return null;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count] = value;
+        return values;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    record IndexKey(String field, String value) {
+    }
+
+}
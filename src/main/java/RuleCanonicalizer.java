@@ -0,0 +1,93 @@
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rewrites a rule into a canonical form, so rules that only differ in how they are written come out
+ * as the same text:
+ *
+ * <ul>
+ *   <li>whitespace and redundant parentheses are dropped, and nested || or &amp;&amp; groups are flattened</li>
+ *   <li>!(a=="b") becomes a!="b", and a double negation is dropped</li>
+ *   <li>the terms of || and &amp;&amp; are sorted, and repeated terms are dropped</li>
+ * </ul>
+ *
+ * The canonical form matches exactly the messages the rule matches. Endpoint terms keep their form,
+ * as endpoint=="sys/qualifier#env" and endpoint=="sys#env/qualifier" match different messages; a
+ * rule with one of them {@link #implies implies} the pair of both that convertEndpointPattern
+ * writes, but not the other way round.
+ */
+public final class RuleCanonicalizer {
+
+    private RuleCanonicalizer() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when the rule is not valid
+     */
+    public static String canonical(String rule) {
+        return canonical(CompiledRule.of(rule).root()).toString();
+    }
+
+    /**
+     * @return the canonical tree; its nodes have no position in any rule text
+     */
+    public static RuleNode canonical(RuleNode node) {
+        if (node instanceof RuleNode.Comparison comparison) {
+            return new RuleNode.Comparison(comparison.field(), comparison.equal(), comparison.value(), -1, -1);
+        } else if (node instanceof RuleNode.Not not) {
+            var term = canonical(not.term());
+            if (term instanceof RuleNode.Comparison comparison) {
+                return new RuleNode.Comparison(comparison.field(), !comparison.equal(), comparison.value(), -1, -1);
+            } else if (term instanceof RuleNode.Not inner) {
+                return inner.term();
+            }
+            return new RuleNode.Not(term, -1, -1);
+        } else if (node instanceof RuleNode.And and) {
+            var terms = canonicalTerms(and.terms(), true);
+            return terms.size() == 1 ? terms.get(0) : new RuleNode.And(terms, -1, -1);
+        } else if (node instanceof RuleNode.Or or) {
+            var terms = canonicalTerms(or.terms(), false);
+            return terms.size() == 1 ? terms.get(0) : new RuleNode.Or(terms, -1, -1);
+        }
+        throw new IllegalStateException("Unknown rule node: " + node);
+    }
+
+    /**
+     * Whether every message the first canonical rule matches is also matched by the second. Only
+     * implications that follow from the structure of the rules are found, so false means "not
+     * known to", not "does not".
+     */
+    public static boolean implies(RuleNode rule, RuleNode other) {
+        if (other instanceof RuleNode.And and) {
+            return and.terms().stream().allMatch(term -> implies(rule, term));
+        } else if (rule instanceof RuleNode.Or or) {
+            return or.terms().stream().allMatch(term -> implies(term, other));
+        } else if (other instanceof RuleNode.Or or && or.terms().stream().anyMatch(term -> implies(rule, term))) {
+            return true;
+        } else if (rule instanceof RuleNode.And and && and.terms().stream().anyMatch(term -> implies(term, other))) {
+            return true;
+        }
+        return rule.equals(other);
+    }
+
+    /**
+     * The canonical terms of an || or &amp;&amp;, with nested groups of the same operator pulled up,
+     * sorted by their text and without repeats.
+     */
+    private static List<RuleNode> canonicalTerms(List<RuleNode> terms, boolean and) {
+        Map<String, RuleNode> sorted = new TreeMap<>();
+        for (var term : terms) {
+            var canonical = canonical(term);
+            if (and && canonical instanceof RuleNode.And nested) {
+                nested.terms().forEach(inner -> sorted.put(inner.toString(), inner));
+            } else if (!and && canonical instanceof RuleNode.Or nested) {
+                nested.terms().forEach(inner -> sorted.put(inner.toString(), inner));
+            } else {
+                sorted.put(canonical.toString(), canonical);
+            }
+        }
+        return List.copyOf(sorted.values());
+    }
+
+}
@@ -0,0 +1,102 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of a parsed route rule. Every node remembers the span of the rule text it was parsed
+ * from.
+ */
+public sealed interface RuleNode {
+
+    int start();
+
+    int end();
+
+    boolean matches(Map<String, String> headers);
+
+    record And(List<RuleNode> terms, int start, int end) implements RuleNode {
+
+        @Override
+        public boolean matches(Map<String, String> headers) {
+            for (var term : terms) {
+                if (!term.matches(headers)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(terms, " && ");
+        }
+
+    }
+
+    record Or(List<RuleNode> terms, int start, int end) implements RuleNode {
+
+        @Override
+        public boolean matches(Map<String, String> headers) {
+            for (var term : terms) {
+                if (term.matches(headers)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(terms, " || ");
+        }
+
+    }
+
+    record Not(RuleNode term, int start, int end) implements RuleNode {
+
+        @Override
+        public boolean matches(Map<String, String> headers) {
+            return !term.matches(headers);
+        }
+
+        @Override
+        public String toString() {
+            return term instanceof Comparison ? "!" + term : "!(" + term + ")";
+        }
+
+    }
+
+    /**
+     * A header compared with a literal, e.g. {@code endpoint=="cars#stage"}. A header the message
+     * does not have is never equal to anything.
+     */
+    record Comparison(String field, boolean equal, String value, int start, int end) implements RuleNode {
+
+        @Override
+        public boolean matches(Map<String, String> headers) {
+            return value.equals(headers.get(field)) == equal;
+        }
+
+        @Override
+        public String toString() {
+            return field + (equal ? "==" : "!=") + quote(value);
+        }
+
+        static String quote(String value) {
+            return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+
+    }
+
+    private static String join(List<RuleNode> terms, String operator) {
+        var joined = new StringBuilder();
+        for (var term : terms) {
+            if (!joined.isEmpty()) {
+                joined.append(operator);
+            }
+            boolean group = term instanceof And || term instanceof Or;
+            joined.append(group ? "(" : "").append(term).append(group ? ")" : "");
+        }
+        return joined.toString();
+    }
+
+}
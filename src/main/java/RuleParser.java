@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive descent parser for route rules:
+ *
+ * <pre>
+ * or         := and ("||" and)*
+ * and        := unary ("&amp;&amp;" unary)*
+ * unary      := "!" unary | "(" or ")" | comparison
+ * comparison := field ("==" | "!=") "string"
+ * </pre>
+ *
+ * Fields may contain letters, digits, '_', '-' and '.', e.g. {@code endpoint.system} or
+ * {@code s3.object.path}. Whitespace, including newlines, is ignored between tokens.
+ */
+final class RuleParser {
+
+    private final String rule;
+    private int position;
+
+    private RuleParser(String rule) {
+        this.rule = rule;
+    }
+
+    static RuleNode parse(String rule) {
+        var parser = new RuleParser(rule);
+        var root = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.position < rule.length()) {
+            throw parser.error("Unexpected '" + rule.charAt(parser.position) + "'");
+        }
+        return root;
+    }
+
+    private RuleNode parseOr() {
+        skipWhitespace();
+        int start = position;
+        var first = parseAnd();
+        if (!peek("||")) {
+            return first;
+        }
+        List<RuleNode> terms = new ArrayList<>();
+        terms.add(first);
+        while (consume("||")) {
+            terms.add(parseAnd());
+        }
+        return new RuleNode.Or(List.copyOf(terms), start, terms.get(terms.size() - 1).end());
+    }
+
+    private RuleNode parseAnd() {
+        skipWhitespace();
+        int start = position;
+        var first = parseUnary();
+        if (!peek("&&")) {
+            return first;
+        }
+        List<RuleNode> terms = new ArrayList<>();
+        terms.add(first);
+        while (consume("&&")) {
+            terms.add(parseUnary());
+        }
+        return new RuleNode.And(List.copyOf(terms), start, terms.get(terms.size() - 1).end());
+    }
+
+    private RuleNode parseUnary() {
+        skipWhitespace();
+        int start = position;
+        if (peek("!") && !peek("!=")) {
+            position++;
+            var term = parseUnary();
+            return new RuleNode.Not(term, start, term.end());
+        }
+        if (consume("(")) {
+            var inner = parseOr();
+            if (!consume(")")) {
+                throw error("Expected ')'");
+            }
+            return inner;
+        }
+        return parseComparison();
+    }
+
+    private RuleNode parseComparison() {
+        skipWhitespace();
+        int start = position;
+        while (position < rule.length() && isFieldChar(rule.charAt(position))) {
+            position++;
+        }
+        if (start == position) {
+            throw error("Expected a header name");
+        }
+        var field = rule.substring(start, position);
+        boolean equal;
+        if (consume("==")) {
+            equal = true;
+        } else if (consume("!=")) {
+            equal = false;
+        } else {
+            throw error("Expected '==' or '!=' after " + field);
+        }
+        skipWhitespace();
+        var value = parseString();
+        return new RuleNode.Comparison(field, equal, value, start, position);
+    }
+
+    private String parseString() {
+        if (position >= rule.length() || rule.charAt(position) != '"') {
+            throw error("Expected a quoted value");
+        }
+        position++;
+        int start = position;
+        StringBuilder escaped = null;
+        while (position < rule.length()) {
+            char c = rule.charAt(position);
+            if (c == '"') {
+                var value = escaped == null ? rule.substring(start, position) : escaped.toString();
+                position++;
+                return value;
+            }
+            if (c == '\\' && position + 1 < rule.length()) {
+                if (escaped == null) {
+                    escaped = new StringBuilder(rule.substring(start, position));
+                }
+                escaped.append(rule.charAt(position + 1));
+                position += 2;
+                continue;
+            }
+            if (escaped != null) {
+                escaped.append(c);
+            }
+            position++;
+        }
+        throw error("Unterminated quoted value");
+    }
+
+    private boolean peek(String token) {
+        skipWhitespace();
+        return rule.startsWith(token, position);
+    }
+
+    private boolean consume(String token) {
+        if (peek(token)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < rule.length() && Character.isWhitespace(rule.charAt(position))) {
+            position++;
+        }
+    }
+
+    static boolean isFieldChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of rule: " + rule);
+    }
+
+}
@@ -0,0 +1,243 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Where the time of a run goes: a latency histogram per stage, counters of what happened to the
+ * routes, and progress with an ETA while the run is going. Fetching the routes and every update
+ * request are also recorded as JFR events, so a recording of a prod run shows them next to GC and
+ * I/O. At the end of a run the metrics are written out as a JSON summary.
+ *
+ * <ul>
+ *   <li>fetch: from sending GET /routes to its response headers</li>
+ *   <li>read: reading one route of the response</li>
+ *   <li>transform: transforming one route</li>
+ *   <li>update: one /updateroute or /updateroutes request, with its retries</li>
+ * </ul>
+ */
+public final class RunMetrics {
+
+    public static final String FETCH = "fetch";
+    public static final String READ = "read";
+    public static final String TRANSFORM = "transform";
+    public static final String UPDATE = "update";
+
+    private final String lane;
+    private final long start = System.nanoTime();
+    private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+    private final LongAdder fetched = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder updated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public RunMetrics(String lane) {
+        this.lane = lane;
+        for (var stage : new String[]{FETCH, READ, TRANSFORM, UPDATE}) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public LatencyHistogram stage(String name) {
+        var stage = stages.get(name);
+        if (stage == null) {
+            throw new IllegalArgumentException("Unknown stage: " + name);
+        }
+        return stage;
+    }
+
+    /**
+     * Starts timing GET /routes; end it once the response headers are in.
+     */
+    public Request startFetch() {
+        var event = new FetchEvent();
+        event.lane = lane;
+        return new Request(stage(FETCH), event, statusCode -> event.statusCode = statusCode);
+    }
+
+    /**
+     * Starts timing an update request of the given routes; end it with how many of them succeeded.
+     */
+    public Request startUpdate(String path, int routes) {
+        var event = new UpdateEvent();
+        event.lane = lane;
+        event.path = path;
+        event.routes = routes;
+        return new Request(stage(UPDATE), event, succeeded -> {
+            updated.add(succeeded);
+            failed.add(routes - succeeded);
+            event.failed = routes - succeeded;
+        });
+    }
+
+    /**
+     * Counts a route the transform changed or left as it was.
+     */
+    public void transformed(boolean changed) {
+        (changed ? this.changed : unchanged).increment();
+    }
+
+    /**
+     * The routes, timing how long each takes to read and counting them as fetched.
+     */
+    public Iterator<Route> timed(Iterator<Route> routes) {
+        var read = stage(READ);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return routes.hasNext();
+            }
+
+            @Override
+            public Route next() {
+                long begin = System.nanoTime();
+                var route = routes.next();
+                read.record(System.nanoTime() - begin);
+                fetched.increment();
+                return route;
+            }
+        };
+    }
+
+    /**
+     * The transform, timing every route it transforms.
+     */
+    public RouteTransform timed(RouteTransform transform) {
+        var stage = stage(TRANSFORM);
+        return route -> {
+            long begin = System.nanoTime();
+            try {
+                return transform.apply(route);
+            } finally {
+                stage.record(System.nanoTime() - begin);
+            }
+        };
+    }
+
+    /**
+     * e.g. "4000 routes read, 120 changed, 80 updated, 1 failed, 52.3 updates/s, 39 queued (ETA 1s)"
+     */
+    public String progress() {
+        long done = updated.sum() + failed.sum();
+        long queued = Math.max(0, changed.sum() - done);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = seconds > 0 ? done / seconds : 0;
+        var progress = fetched.sum() + " routes read, " + changed.sum() + " changed, " + updated.sum()
+                + " updated, " + failed.sum() + " failed, " + String.format("%.1f", rate) + " updates/s";
+        if (queued > 0) {
+            progress += ", " + queued + " queued" + (rate > 0 ? " (ETA " + (long) Math.ceil(queued / rate) + "s)" : "");
+        }
+        return progress;
+    }
+
+    /**
+     * Prints {@link #progress()} every interval until the returned handle is closed.
+     */
+    public Closeable reportProgress(PrintStream out, Duration every) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "progress-" + lane);
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> out.println(progress()), every.toMillis(), every.toMillis(), TimeUnit.MILLISECONDS);
+        return reporter::shutdownNow;
+    }
+
+    public ObjectNode summary(ObjectMapper mapper) {
+        var summary = mapper.createObjectNode()
+                .put("lane", lane)
+                .put("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+        summary.putObject("routes")
+                .put("fetched", fetched.sum())
+                .put("changed", changed.sum())
+                .put("unchanged", unchanged.sum())
+                .put("updated", updated.sum())
+                .put("failed", failed.sum());
+        var stageSummaries = summary.putObject("stages");
+        stages.forEach((name, stage) -> stageSummaries.putObject(name)
+                .put("count", stage.count())
+                .put("totalMillis", millis(stage.totalNanos()))
+                .put("p50Millis", millis(stage.percentileNanos(50)))
+                .put("p99Millis", millis(stage.percentileNanos(99)))
+                .put("maxMillis", millis(stage.maxNanos())));
+        return summary;
+    }
+
+    public void write(ObjectMapper mapper, Path file) throws IOException {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), summary(mapper));
+    }
+
+    /**
+     * A request being timed, both in its stage histogram and as a JFR event.
+     */
+    public static final class Request {
+
+        private final LatencyHistogram stage;
+        private final Event event;
+        private final IntConsumer outcome;
+        private final long begin = System.nanoTime();
+
+        private Request(LatencyHistogram stage, Event event, IntConsumer outcome) {
+            this.stage = stage;
+            this.event = event;
+            this.outcome = outcome;
+            event.begin();
+        }
+
+        /**
+         * @param result the status code of a fetch, or how many routes of an update succeeded
+         */
+        public void end(int result) {
+            stage.record(System.nanoTime() - begin);
+            outcome.accept(result);
+            event.commit();
+        }
+
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    @Name("routesapi.Fetch")
+    @Label("Fetch Routes")
+    @Category("RoutesApi")
+    static final class FetchEvent extends Event {
+        @Label("Lane")
+        String lane;
+        @Label("Status Code")
+        int statusCode;
+    }
+
+    @Name("routesapi.Update")
+    @Label("Update Routes")
+    @Category("RoutesApi")
+    static final class UpdateEvent extends Event {
+        @Label("Lane")
+        String lane;
+        @Label("Path")
+        String path;
+        @Label("Routes")
+        int routes;
+        @Label("Failed Routes")
+        int failed;
+    }
+
+}
@@ -0,0 +1,211 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local mirror of the route table, kept as an append-only file with one JSON line per route
+ * version and a {"deleted":uuid} line per removed route. Opening the store replays the file into
+ * an in-memory index keyed by uuid, so the last seen state of every route can be looked up without
+ * calling the route manager. The newest modifiedDate seen is kept as a watermark. Superseded
+ * versions and tombstones stay in the file until {@link #compact()} rewrites it.
+ */
+public class SnapshotStore implements Closeable {
+
+    private final ObjectMapper mapper;
+    private final Path file;
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private BufferedWriter writer;
+    private String watermark;
+    private int lines;
+
+    private SnapshotStore(ObjectMapper mapper, Path file) {
+        this.mapper = mapper;
+        this.file = file;
+    }
+
+    public static SnapshotStore open(ObjectMapper mapper, Path file) throws IOException {
+        var store = new SnapshotStore(mapper, file);
+        if (Files.exists(file)) {
+            try (var lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        store.replay(line);
+                        store.lines++;
+                    }
+                }
+            }
+        }
+        store.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return store;
+    }
+
+    public Optional<Route> get(String uuid) {
+        return Optional.ofNullable(routes.get(uuid));
+    }
+
+    public Collection<Route> routes() {
+        return routes.values();
+    }
+
+    public RoutesList toRoutesList() {
+        return new RoutesList(new ArrayList<>(routes.values()));
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    /**
+     * Lines of the file that no longer describe a current route: older versions and tombstones.
+     */
+    public int staleLines() {
+        return lines - routes.size();
+    }
+
+    /**
+     * @return the newest modifiedDate in the store, or empty when the store has never been synced
+     */
+    public Optional<String> watermark() {
+        return Optional.ofNullable(watermark);
+    }
+
+    /**
+     * Routes modified after the given watermark, e.g. one saved from {@link #watermark()} before a
+     * sync.
+     */
+    public List<Route> modifiedAfter(String since) {
+        return routes.values().stream()
+                .filter(route -> route.modifiedDate() != null && route.modifiedDate().compareTo(since) > 0)
+                .toList();
+    }
+
+    /**
+     * Brings the store in line with the live route table, appending only routes that are new or
+     * changed and tombstones for routes that are gone. modifiedDate only has day precision, so
+     * routes are compared in full rather than trusted to the watermark.
+     */
+    public SyncResult sync(Iterator<Route> live) throws IOException {
+        int added = 0;
+        int updated = 0;
+        int unchanged = 0;
+        var seen = new HashSet<String>();
+        while (live.hasNext()) {
+            var route = live.next();
+            seen.add(route.uuid());
+            var stored = routes.get(route.uuid());
+            if (stored == null) {
+                added++;
+            } else if (stored.equals(route)) {
+                unchanged++;
+                continue;
+            } else {
+                updated++;
+            }
+            put(route);
+        }
+        int removed = 0;
+        for (var uuid : new ArrayList<>(routes.keySet())) {
+            if (!seen.contains(uuid)) {
+                remove(uuid);
+                removed++;
+            }
+        }
+        writer.flush();
+        return new SyncResult(added, updated, removed, unchanged);
+    }
+
+    public void put(Route route) throws IOException {
+        writer.write(mapper.writeValueAsString(route));
+        writer.newLine();
+        lines++;
+        index(route);
+    }
+
+    public void remove(String uuid) throws IOException {
+        writer.write(mapper.writeValueAsString(Map.of("deleted", uuid)));
+        writer.newLine();
+        lines++;
+        routes.remove(uuid);
+    }
+
+    /**
+     * Rewrites the file with only the current version of each route.
+     */
+    public void compact() throws IOException {
+        writer.close();
+        var compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (var output = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (var route : routes.values()) {
+                output.write(mapper.writeValueAsString(route));
+                output.newLine();
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        lines = routes.size();
+    }
+
+    /**
+     * Compacts the file once it holds more stale lines than current routes, so a store that is
+     * synced over and over stays at most about twice the size of the route table.
+     *
+     * @return whether the file was compacted
+     */
+    public boolean compactIfStale() throws IOException {
+        if (staleLines() <= routes.size()) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void replay(String line) throws IOException {
+        var node = mapper.readTree(line);
+        if (node.has("deleted")) {
+            routes.remove(node.get("deleted").asText());
+        } else {
+            index(mapper.treeToValue(node, Route.class));
+        }
+    }
+
+    private void index(Route route) {
+        routes.remove(route.uuid());
+        routes.put(route.uuid(), route);
+        var modified = route.modifiedDate();
+        if (modified != null && (watermark == null || modified.compareTo(watermark) > 0)) {
+            watermark = modified;
+        }
+    }
+
+    public record SyncResult(int added, int updated, int removed, int unchanged) {
+
+        public String summary() {
+            return "Snapshot synced: " + added + " added, " + updated + " updated, "
+                    + removed + " removed, " + unchanged + " unchanged.";
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the queue and endpoint names that repeat across the route table, so each
+ * distinct name is held in memory once however many routes use it.
+ */
+public final class Symbols {
+
+    private static final int LIMIT = 200_000;
+    private static final Map<String, String> SYMBOLS = new ConcurrentHashMap<>();
+
+    private Symbols() {
+    }
+
+    public static String intern(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        var canonical = SYMBOLS.putIfAbsent(symbol, symbol);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (SYMBOLS.size() > LIMIT) {
+            SYMBOLS.clear();
+        }
+        return symbol;
+    }
+
+    /**
+     * Reads a JSON string as its canonical instance, e.g. for the queues of a {@link Route}.
+     */
+    public static final class Deserializer extends JsonDeserializer<String> {
+
+        @Override
+        public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return intern(parser.getValueAsString());
+        }
+
+    }
+
+}
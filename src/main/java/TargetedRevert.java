@@ -0,0 +1,92 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Picks the routes of an OriginalRoutes backup that a revert actually has to send. Against the live
+ * route table only routes whose live state differs from the backup are restored. Against the
+ * progress journal of an interrupted run only the routes that run applied are restored. The backup
+ * is read one route at a time, so it is never held in memory.
+ */
+public class TargetedRevert {
+
+    private final Map<String, Route> live;
+    private final ProgressJournal applied;
+    private int restored;
+    private int unchanged;
+    private int untouched;
+    private int missing;
+
+    private TargetedRevert(Map<String, Route> live, ProgressJournal applied) {
+        this.live = live;
+        this.applied = applied;
+    }
+
+    /**
+     * @param liveRoutes the current route table, e.g. streamed from /routes
+     */
+    public static TargetedRevert againstLive(Iterator<Route> liveRoutes) {
+        Map<String, Route> live = new HashMap<>();
+        while (liveRoutes.hasNext()) {
+            var route = liveRoutes.next();
+            live.put(route.uuid(), route);
+        }
+        return new TargetedRevert(live, null);
+    }
+
+    /**
+     * @param applied the journal of the run being reverted
+     */
+    public static TargetedRevert againstJournal(ProgressJournal applied) {
+        return new TargetedRevert(null, applied);
+    }
+
+    /**
+     * Hands every backup route that needs restoring, after the transform, to restore.
+     */
+    public void restore(Iterator<Route> backup, RouteTransform transform, Consumer<Route> restore) {
+        while (backup.hasNext()) {
+            var original = backup.next();
+            if (live != null) {
+                var current = live.get(original.uuid());
+                if (current == null) {
+                    missing++;
+                    continue;
+                }
+                var reverted = transform.apply(original);
+                if (!new RouteChange(current, reverted).changed()) {
+                    unchanged++;
+                    continue;
+                }
+                restored++;
+                restore.accept(reverted);
+            } else if (applied.isApplied(original.uuid())) {
+                restored++;
+                restore.accept(transform.apply(original));
+            } else {
+                untouched++;
+            }
+        }
+    }
+
+    /**
+     * @return the live state of the route, or null when it is unknown or the route no longer exists
+     */
+    public Route current(String uuid) {
+        return live == null ? null : live.get(uuid);
+    }
+
+    public int restored() {
+        return restored;
+    }
+
+    public String summary() {
+        if (live != null) {
+            return "Restoring " + restored + " routes, " + unchanged + " already match the backup, "
+                    + missing + " no longer exist.";
+        }
+        return "Restoring " + restored + " routes, " + untouched + " were not applied by the run.";
+    }
+
+}
@@ -0,0 +1,58 @@
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking token bucket limiting how many requests per second are sent to the route manager.
+ * A server supplied Retry-After can pause the whole bucket so every caller backs off together.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException(
+                    "Rate and burst must be positive. Rate: " + permitsPerSecond + " Burst: " + burst);
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Stops handing out tokens for the given duration, e.g. while honouring a Retry-After header.
+     */
+    public synchronized void pause(Duration duration) {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + duration.toNanos());
+        tokens = 0;
+    }
+
+    private synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        if (now < pausedUntil) {
+            lastRefill = pausedUntil;
+            return pausedUntil - now;
+        }
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / permitsPerNano);
+    }
+
+}
@@ -0,0 +1,23 @@
+import java.util.List;
+
+/**
+ * @param skipped routes that were not sent because the transforms left them unchanged
+ * @param resumed routes that were not sent because an earlier attempt had already applied them
+ */
+public record UpdateReport(List<UpdateResult> results, int skipped, int resumed) {
+
+    public List<UpdateResult> successes() {
+        return results.stream().filter(UpdateResult::succeeded).toList();
+    }
+
+    public List<UpdateResult> failures() {
+        return results.stream().filter(result -> !result.succeeded()).toList();
+    }
+
+    public String summary() {
+        return "Updated " + successes().size() + " of " + results.size() + " routes, "
+                + failures().size() + " failed, " + skipped + " unchanged routes skipped, "
+                + resumed + " already applied.";
+    }
+
+}
@@ -0,0 +1,9 @@
+public record UpdateResult(String uuid, String name, int statusCode, String message) {
+
+    static final int NO_RESPONSE = -1;
+
+    public boolean succeeded() {
+        return statusCode == 200;
+    }
+
+}
@@ -0,0 +1,128 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditLogTests {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockRouteManager server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = MockRouteManager.start(true, Duration.ofMillis(5));
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void everySentRouteIsLoggedWithItsChanges() throws IOException {
+        var log = AuditLog.open(MAPPER, folder.getRoot().toPath(), "audit", AuditLog.Options.DEFAULT);
+        try (log) {
+            var updater = new RouteUpdater(server.client(2),
+                    new RouteUpdater.Options(null, 10, null, log));
+            var uuid1 = TestRoutes.route("uuid1");
+            var bad = TestRoutes.route("bad");
+            updater.submit(new RouteChange(uuid1, RouteTransforms.withRule(uuid1, "endpoint==\"a#b\"")));
+            updater.submit(new RouteChange(TestRoutes.route("uuid2"), TestRoutes.route("uuid2")));
+            updater.submit(new RouteChange(bad, RouteTransforms.withRule(bad, "endpoint==\"c#d\"")));
+            updater.submit(TestRoutes.route("uuid3"));
+            updater.finish();
+        }
+
+        assertThat(log.files()).containsExactly(folder.getRoot().toPath().resolve("audit-0001.ndjson"));
+        var lines = lines(Files.newInputStream(log.files().get(0)));
+        assertThat(lines).hasSize(3);
+        var changed = line(lines, "uuid1");
+        assertThat(changed.path("statusCode").asInt()).isEqualTo(200);
+        assertThat(changed.path("latencyMillis").asDouble()).isPositive();
+        assertThat(changed.path("changes").path("rule").path("before").asText()).isEqualTo("endpoint==\"cars#stage\"");
+        assertThat(changed.path("changes").path("rule").path("after").asText()).isEqualTo("endpoint==\"a#b\"");
+        assertThat(changed.path("changes").size()).isEqualTo(1);
+        assertThat(changed.has("message")).isFalse();
+        var failed = line(lines, "bad");
+        assertThat(failed.path("statusCode").asInt()).isEqualTo(500);
+        assertThat(failed.has("message")).isTrue();
+        var restored = line(lines, "uuid3");
+        assertThat(restored.path("restored").asBoolean()).isTrue();
+        assertThat(restored.has("changes")).isFalse();
+    }
+
+    @Test
+    public void logRollsOverToNumberedFiles() throws IOException {
+        var log = AuditLog.open(MAPPER, folder.getRoot().toPath(), "audit", new AuditLog.Options(1_000, false));
+        try (log) {
+            for (int i = 0; i < 50; i++) {
+                var route = TestRoutes.route("uuid" + i);
+                log.record(route, RouteTransforms.withRule(route, "enabled==true"),
+                        new UpdateResult("uuid" + i, route.name(), 200, "OK"), 1_500_000);
+            }
+        }
+
+        assertThat(log.files()).hasSizeGreaterThan(2);
+        assertThat(log.files().get(1).getFileName()).hasToString("audit-0002.ndjson");
+        List<JsonNode> lines = new ArrayList<>();
+        for (var file : log.files()) {
+            assertThat(Files.size(file)).isLessThan(1_000 + 400);
+            lines.addAll(lines(Files.newInputStream(file)));
+        }
+        assertThat(lines).hasSize(50);
+        assertThat(lines.get(0).path("uuid").asText()).isEqualTo("uuid0");
+        assertThat(lines.get(49).path("uuid").asText()).isEqualTo("uuid49");
+        assertThat(lines.get(0).path("latencyMillis").asDouble()).isEqualTo(1.5);
+    }
+
+    @Test
+    public void gzippedLogIsReadable() throws IOException {
+        var log = AuditLog.open(MAPPER, folder.getRoot().toPath(), "audit", new AuditLog.Options(1L << 20, true));
+        try (log) {
+            var route = TestRoutes.route("uuid1");
+            log.record(route, RouteTransforms.withRule(route, "enabled==true"),
+                    new UpdateResult("uuid1", route.name(), 200, "OK"), 1_000_000);
+        }
+
+        assertThat(log.files()).singleElement().satisfies(file ->
+                assertThat(file.getFileName()).hasToString("audit-0001.ndjson.gz"));
+        var lines = lines(new GZIPInputStream(Files.newInputStream(log.files().get(0))));
+        assertThat(lines).singleElement().satisfies(line ->
+                assertThat(line.path("changes").path("rule").path("after").asText()).isEqualTo("enabled==true"));
+    }
+
+    private static List<JsonNode> lines(InputStream in) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        try (in) {
+            for (var line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    lines.add(MAPPER.readTree(line));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static JsonNode line(List<JsonNode> lines, String uuid) {
+        return lines.stream().filter(line -> uuid.equals(line.path("uuid").asText())).findFirst().orElseThrow();
+    }
+
+}
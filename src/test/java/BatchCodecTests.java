@@ -0,0 +1,40 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchCodecTests {
+
+    @Test
+    public void encodesTheUpdateFieldsOfEveryRoute() {
+        var route = TestRoutes.route("uuid1", "endpoint==\"cars#stage/vendor\"", "scms#stage", "cfis#stage");
+
+        assertThat(new String(BatchCodec.encode(List.of(route, TestRoutes.route("uuid2"))), StandardCharsets.UTF_8))
+                .isEqualTo("{\"routesList\":["
+                        + "{\"uuid\":\"uuid1\",\"name\":\"routeuuid1\",\"rule\":\"endpoint==\\\"cars#stage/vendor\\\"\","
+                        + "\"description\":\"\",\"enabled\":true,\"queues\":[\"scms#stage\",\"cfis#stage\"]},"
+                        + "{\"uuid\":\"uuid2\",\"name\":\"routeuuid2\",\"rule\":\"endpoint==\\\"cars#stage\\\"\","
+                        + "\"description\":\"\",\"enabled\":true,\"queues\":[\"scms#stage\"]}]}");
+    }
+
+    @Test
+    public void readsTheResultOfEveryRoute() throws JsonProcessingException {
+        var results = BatchCodec.decodeResults("""
+                {"results": [
+                  {"uuid": "uuid1", "statusCode": 200, "message": "OK"},
+                  {"uuid": "bad", "statusCode": 500},
+                  {"uuid": "lost"}
+                ]}
+                """);
+
+        assertThat(results).containsOnlyKeys("uuid1", "bad", "lost");
+        assertThat(results.get("uuid1").succeeded()).isTrue();
+        assertThat(results.get("bad").statusCode()).isEqualTo(500);
+        assertThat(results.get("bad").message()).isEmpty();
+        assertThat(results.get("lost").statusCode()).isEqualTo(UpdateResult.NO_RESPONSE);
+    }
+
+}
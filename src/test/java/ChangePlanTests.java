@@ -0,0 +1,100 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangePlanTests {
+
+    private static final Route VIN = new Route("32354541", "Vin", "endpoint==\"cars#stage/vendor\"", "", true,
+            List.of("cars#stage/vendor"), "2023-03-28", "2023-03-28");
+    private static final Route ELEND = new Route("32354542", "Elend", "emxSourceSystem==\"cars\"", "", true,
+            List.of("scms#stage"), "2023-03-28", "2023-03-28");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockRouteManager server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = MockRouteManager.start(true, Duration.ZERO);
+        server.addRoutes(List.of(VIN, ELEND));
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void writesOneLinePerChangedField() throws IOException {
+        var plan = new ChangePlan();
+        plan.add(new RouteChange(VIN, RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN.apply(VIN)));
+        plan.add(new RouteChange(ELEND, ELEND));
+        plan.add(new RouteChange(ELEND, new Route(ELEND.uuid(), ELEND.name(), "endpoint.system==\"cars\"", "", false,
+                ELEND.queues(), ELEND.createdDate(), ELEND.modifiedDate())));
+        plan.add(VIN);
+        var diff = new StringWriter();
+
+        plan.write(diff);
+
+        assertThat(diff.toString()).isEqualTo("""
+                ~ 32354541 Vin
+                    queues: cars#stage/vendor -> cars/vendor#stage
+                ~ 32354542 Elend
+                    rule: emxSourceSystem=="cars" -> endpoint.system=="cars"
+                    enabled: true -> false
+                = 32354541 Vin
+                3 of 4 routes would change (enabled: 1, queues: 1, rule: 1)
+                """);
+    }
+
+    @Test
+    public void dryRunSendsNothing() throws IOException {
+        var lane = new Lane("dev", "dev", server.baseUri(), "user:password", 1000, 2, 10, folder.getRoot().toPath());
+        var planFile = folder.getRoot().toPath().resolve("plan.diff");
+        var output = new ByteArrayOutputStream();
+
+        Main.runConversion(lane, server.client(2), new PrintStream(output, true, StandardCharsets.UTF_8),
+                List.of(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN), "switchTargetsToQualifierPattern-test",
+                ParallelTransform.DEFAULT, AuditLog.Options.DEFAULT, planFile);
+
+        assertThat(server.singleRequests() + server.batchRequests()).isZero();
+        assertThat(Files.readAllLines(planFile)).containsExactly(
+                "~ 32354541 Vin",
+                "    queues: cars#stage/vendor -> cars/vendor#stage",
+                "1 of 2 routes would change (queues: 1)");
+        assertThat(output.toString(StandardCharsets.UTF_8)).startsWith("Dry run: 1 of 2 routes would change");
+        assertThat(Files.readString(folder.getRoot().toPath().resolve("RunMetrics-dev.json")))
+                .contains("\"fetched\" : 2", "\"changed\" : 1", "\"unchanged\" : 1");
+    }
+
+    @Test
+    public void chainedConversionsAreAppliedInOnePass() throws IOException {
+        var lane = new Lane("dev", "dev", server.baseUri(), "user:password", 1000, 2, 10, folder.getRoot().toPath());
+        var cli = Cli.parse("switchTargetsToQualifierPattern,convertRuleToEndpointParts", "--dry-run");
+
+        Main.runConversion(lane, server.client(2), new PrintStream(new ByteArrayOutputStream()), cli.transforms(lane),
+                cli.run(lane), ParallelTransform.DEFAULT, AuditLog.Options.DEFAULT, cli.plan(lane));
+
+        assertThat(Files.readAllLines(cli.plan(lane))).containsExactly(
+                "~ 32354541 Vin",
+                "    queues: cars#stage/vendor -> cars/vendor#stage",
+                "~ 32354542 Elend",
+                "    rule: emxSourceSystem==\"cars\" -> endpoint.system==\"cars\"",
+                "2 of 2 routes would change (queues: 1, rule: 1)");
+    }
+
+}
@@ -0,0 +1,105 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CliTests {
+
+    private static final Lane STAGE = new Lane("stage", "stage", "http://localhost", "user:password", 50, 16, 25, Path.of("."));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesConversionWithOptions() {
+        var cli = Cli.parse("--lanes", "dev,stage", "convertQueuesToEndpoints", "--dry-run", "--plan", "plan-{lane}.diff");
+
+        assertThat(cli.isConversion()).isTrue();
+        assertThat(cli.dryRun()).isTrue();
+        assertThat(cli.lanes()).containsExactly("dev", "stage");
+        assertThat(cli.config()).isEmpty();
+        assertThat(cli.plan(STAGE)).isEqualTo(Path.of("plan-stage.diff"));
+        var lane = new Lane("dev", "dev", "http://localhost", "user:password", 50, 16, 25, Path.of("runs/dev"));
+        assertThat(Cli.parse("convertQueuesToEndpoints", "--dry-run").plan(lane))
+                .isEqualTo(Path.of("runs/dev/ChangePlan-dev.diff"));
+        assertThat(cli.parallelism()).isSameAs(ParallelTransform.DEFAULT);
+        assertThat(Cli.parse("convertEndpointPattern", "--parallelism", "4").parallelism().parallelism()).isEqualTo(4);
+
+        var route = new Route("1", "Vin", "", "", true, List.of("emx-to-cars-stage"), null, null);
+        assertThat(cli.transforms(STAGE)).singleElement()
+                .satisfies(transform -> assertThat(transform.apply(route).queues()).containsExactly("cars#stage"));
+    }
+
+    @Test
+    public void chainsConversionsInTheOrderGiven() {
+        var cli = Cli.parse("convertQueuesToEndpoints,switchTargetsToQualifierPattern");
+        var route = new Route("1", "Vin", "", "", true, List.of("emx-to-cars-stage", "scms#stage/vendor"), null, null);
+
+        assertThat(cli.isConversion()).isTrue();
+        assertThat(cli.transforms(STAGE)).hasSize(2);
+        var converted = route;
+        for (var transform : cli.transforms(STAGE)) {
+            converted = transform.apply(converted);
+        }
+        assertThat(converted.queues()).containsExactly("cars#stage", "scms/vendor#stage");
+        assertThat(cli.run(STAGE)).startsWith("convertQueuesToEndpoints+switchTargetsToQualifierPattern-");
+    }
+
+    @Test
+    public void revertDefaultsToRestoringTheBackupAsItIs() {
+        var cli = Cli.parse("revert", "--backup", "OriginalRoutes-{lane}.routes", "--applied");
+        var route = new Route("1", "Vin", "endpoint.system==\"cars\"", "", true, List.of(), null, null);
+
+        assertThat(cli.isConversion()).isFalse();
+        assertThat(cli.dryRun()).isFalse();
+        assertThat(cli.flag("applied")).isTrue();
+        assertThat(cli.file("backup", STAGE)).isEqualTo(Path.of("OriginalRoutes-stage.routes"));
+        assertThat(cli.transforms(STAGE)).isEmpty();
+        assertThat(Cli.parse("revert", "--transform", "convertRuleToHeaders").transforms(STAGE).get(0)
+                .apply(route).rule()).isEqualTo("emxSourceSystem==\"cars\"");
+        assertThatThrownBy(() -> Cli.parse("rewriteRules").transforms(STAGE)).hasMessage("rewriteRules needs --table");
+    }
+
+    @Test
+    public void runIsNamedAfterTheCommandAndWhatItDependsOn() throws IOException {
+        var table = folder.getRoot().toPath().resolve("rewrite.properties");
+        Files.writeString(table, "cars=boats\n");
+        var rewrite = Cli.parse("rewriteRules", "--table", table.toString());
+        var run = rewrite.run(STAGE);
+
+        assertThat(run).matches("rewriteRules-[0-9a-f]{12}");
+        assertThat(rewrite.run(STAGE)).isEqualTo(run);
+        Files.writeString(table, "cars=bikes\n");
+        assertThat(rewrite.run(STAGE)).isNotEqualTo(run);
+        assertThat(Cli.parse("convertQueuesToEndpoints").run(STAGE)).startsWith("convertQueuesToEndpoints-")
+                .isNotEqualTo(Cli.parse("convertQueuesToEndpoints").run(
+                        new Lane("dev", "dev", "http://localhost", "user:password", 50, 16, 25, Path.of("."))));
+        assertThat(Cli.parse("revert", "--backup", "a.routes").run(STAGE))
+                .isNotEqualTo(Cli.parse("revert", "--backup", "b.routes").run(STAGE));
+    }
+
+    @Test
+    public void rejectsWhatItDoesNotKnow() {
+        assertThatThrownBy(() -> Cli.parse("convertEverything")).hasMessage("Unknown command: convertEverything");
+        assertThatThrownBy(() -> Cli.parse("revert", "--force")).hasMessage("Unknown option: --force");
+        assertThatThrownBy(() -> Cli.parse("revert", "--backup")).hasMessage("Missing the value of --backup");
+        assertThatThrownBy(() -> Cli.parse("revert", "--transform", "undo")).hasMessage("Unknown conversion: undo");
+        assertThatThrownBy(() -> Cli.parse("revert").option("backup")).hasMessage("revert needs --backup");
+        assertThatThrownBy(() -> Cli.parse("convertEndpointPattern", "--parallelism", "0"))
+                .hasMessage("--parallelism must be a number of threads, not 0");
+        assertThatThrownBy(Cli::parse).hasMessage("Missing the command");
+        assertThat(Cli.parse("--help").command()).isEqualTo("help");
+        assertThatThrownBy(() -> Cli.parse("convertEndpointPattern,undo"))
+                .hasMessage("Only conversions can be chained, not undo");
+        assertThatThrownBy(() -> Cli.parse("convertEndpointPattern,revert"))
+                .hasMessage("Only conversions can be chained, not revert");
+    }
+
+}
@@ -0,0 +1,52 @@
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompiledRuleTests {
+
+    @Test
+    public void evaluatesHeadersAgainstTheRule() {
+        var rule = CompiledRule.of("emxSourceSystem==\"cars\" && emxSourceEnvironment==\"stage\" && emxDatatype!=\"vendor\"");
+
+        assertThat(rule.matches(Map.of("emxSourceSystem", "cars", "emxSourceEnvironment", "stage"))).isTrue();
+        assertThat(rule.matches(Map.of("emxSourceSystem", "cars", "emxSourceEnvironment", "stage", "emxDatatype", "vendor"))).isFalse();
+        assertThat(rule.matches(Map.of("emxSourceSystem", "cars"))).isFalse();
+    }
+
+    @Test
+    public void parsesGroupsNegationAndNewlines() {
+        var rule = CompiledRule.of("endpoint==\"cmiss#stage/delta\" && \n(objectType==\"lds.notification.unit.UnitStatusChange\" \n || objectType==\"lds.notification.unit.UnitChange\") && !(s3.object.path==\"joe/bob\")");
+
+        assertThat(rule.root()).isInstanceOf(RuleNode.And.class);
+        assertThat(rule.matches(Map.of("endpoint", "cmiss#stage/delta", "objectType", "lds.notification.unit.UnitChange"))).isTrue();
+        assertThat(rule.matches(Map.of("endpoint", "cmiss#stage/delta", "objectType", "lds.notification.unit.UnitChange",
+                "s3.object.path", "joe/bob"))).isFalse();
+        assertThat(rule.root()).hasToString("endpoint==\"cmiss#stage/delta\" && (objectType==\"lds.notification.unit.UnitStatusChange\""
+                + " || objectType==\"lds.notification.unit.UnitChange\") && !s3.object.path==\"joe/bob\"");
+    }
+
+    @Test
+    public void unescapesQuotedValues() {
+        var rule = CompiledRule.of("name==\"say \\\"hi\\\"\"");
+
+        assertThat(rule.root()).isInstanceOfSatisfying(RuleNode.Comparison.class, comparison ->
+                assertThat(comparison.value()).isEqualTo("say \"hi\""));
+    }
+
+    @Test
+    public void compiledRulesAreCached() {
+        assertThat(CompiledRule.of("endpoint==\"a#b\"")).isSameAs(CompiledRule.of("endpoint==\"a#b\""));
+    }
+
+    @Test
+    public void rejectsInvalidRules() {
+        assertThatThrownBy(() -> CompiledRule.of("endpoint==\"a#b\" &&")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledRule.of("(endpoint==\"a#b\"")).hasMessageContaining("Expected ')'");
+        assertThatThrownBy(() -> CompiledRule.of("endpoint=\"a#b\"")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CompiledRule.of("endpoint==\"a#b")).hasMessageContaining("Unterminated");
+    }
+
+}
@@ -0,0 +1,83 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointIndexTests {
+
+    private static final Route VIN = TestRoutes.route("1", TestRoutes.RULE, "emx-to-cfis-test;", "scms#stage");
+    private static final Route ELEND = TestRoutes.route("2", TestRoutes.RULE, "cfis#test%3B", "crm-aveng#stage/cmiss");
+    private static final Route RAND = TestRoutes.route("3", TestRoutes.RULE, "crm-aveng/cmiss#stage", "emx-trash");
+
+    @Test
+    public void findsRoutesByAnyFormOfTheirTarget() {
+        var index = EndpointIndex.of(new RoutesList(List.of(VIN, ELEND, RAND)), "stage");
+
+        assertThat(index.routesTo("emx-to-cfis-test;")).containsExactly("1", "2");
+        assertThat(index.routesTo("cfis#test%3B")).containsExactly("1", "2");
+        assertThat(index.routesTo("crm-aveng#stage/cmiss")).containsExactly("2", "3");
+        assertThat(index.routesTo("crm-aveng/cmiss#stage")).containsExactly("2", "3");
+        assertThat(index.routesTo("emx-to-scms-stage")).containsExactly("1");
+        assertThat(index.routesTo("emx-trash")).containsExactly("3");
+        assertThat(index.routesTo("scms#prod")).isEmpty();
+        assertThat(index.targets())
+                .containsExactly("cfis#test%3B", "crm-aveng#stage/cmiss", "emx-core-trash#stage", "scms#stage");
+    }
+
+    @Test
+    public void coreQueuesAreTheCoreEndpointsOfTheLane() {
+        var trash = TestRoutes.route("4", TestRoutes.RULE, "emx-trash");
+        var archive = TestRoutes.route("5", TestRoutes.RULE, "emx-to-archive-core");
+        var healthcheck = TestRoutes.route("6", TestRoutes.RULE, "emx-to-emx-healthcheck");
+        var converted = TestRoutes.route("7", TestRoutes.RULE,
+                "emx-core-trash#stage", "emx-core-archive#stage", "emx-core-healthcheck#stage");
+        var index = EndpointIndex.of(new RoutesList(List.of(trash, archive, healthcheck, converted)), "stage");
+
+        assertThat(index.routesTo("emx-trash")).containsExactly("4", "7");
+        assertThat(index.routesTo("emx-core-trash#stage")).containsExactly("4", "7");
+        assertThat(index.routesTo("emx-to-archive-core")).containsExactly("5", "7");
+        assertThat(index.routesTo("emx-core-archive#stage")).containsExactly("5", "7");
+        assertThat(index.routesTo("emx-to-emx-healthcheck")).containsExactly("6", "7");
+        assertThat(index.routesTo("emx-core-healthcheck#stage")).containsExactly("6", "7");
+        assertThat(index.routesTo("archive#core")).isEmpty();
+        assertThat(index.routesTo("emx#healthcheck")).isEmpty();
+        assertThat(index.routesToSystem("emx-core-archive")).containsExactly("5", "7");
+        assertThat(index.targets())
+                .containsExactly("emx-core-archive#stage", "emx-core-healthcheck#stage", "emx-core-trash#stage");
+        assertThat(EndpointIndex.of(new RoutesList(List.of(trash)), "dev").targets())
+                .containsExactly("emx-core-trash#dev");
+    }
+
+    @Test
+    public void answersPrefixSystemAndEnvironmentQueries() {
+        var index = EndpointIndex.of(new RoutesList(List.of(VIN, ELEND, RAND)), "stage");
+
+        assertThat(index.routesWithPrefix("crm-")).containsExactly("2", "3");
+        assertThat(index.routesWithPrefix("emx-core-")).containsExactly("3");
+        assertThat(index.routesToSystem("cfis")).containsExactly("1", "2");
+        assertThat(index.routesToEnvironment("stage")).containsExactlyInAnyOrder("1", "2", "3");
+        assertThat(index.routesToEnvironment("test%3B")).containsExactly("1", "2");
+    }
+
+    @Test
+    public void followsTransformedRoutes() {
+        var index = EndpointIndex.of(new RoutesList(List.of(VIN, ELEND, RAND)), "stage");
+        var transform = RouteTransforms.queuesToEndpoints("stage");
+
+        for (var route : List.of(VIN, ELEND, RAND)) {
+            index.put(transform.apply(route));
+        }
+        index.put(TestRoutes.route("2", TestRoutes.RULE, "scms#stage"));
+        index.remove("1");
+
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.routesTo("scms#stage")).containsExactly("2");
+        assertThat(index.routesTo("emx-trash")).containsExactly("3");
+        assertThat(index.routesTo("emx-core-trash#stage")).containsExactly("3");
+        assertThat(index.routesToSystem("cfis")).isEmpty();
+        assertThat(index.routesToSystem("crm-aveng")).containsExactly("3");
+        assertThat(index.targets()).containsExactly("crm-aveng#stage/cmiss", "emx-core-trash#stage", "scms#stage");
+    }
+
+}
@@ -0,0 +1,85 @@
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EndpointTests {
+
+    @Test
+    public void parsesEndpointsOnceAndSharesThem() {
+        var endpoint = Endpoint.parse("cars#stage/vendor");
+
+        assertThat(endpoint.system()).isEqualTo("cars");
+        assertThat(endpoint.environment()).isEqualTo("stage");
+        assertThat(endpoint.qualifier()).isEqualTo("vendor");
+        assertThat(endpoint.qualifierFirst()).isEqualTo("cars/vendor#stage");
+        assertThat(Endpoint.parse(new String("cars#stage/vendor"))).isSameAs(endpoint);
+        assertThat(Endpoint.parse("scms#stage").qualifier()).isNull();
+        for (var notAnEndpoint : List.of("emx-trash", "#stage", "scms#", "a#b#c", "cars#/vendor", "cars#stage/",
+                "/vendor#stage", "cars/#stage", "cars/vendor#stage/x")) {
+            assertThat(Endpoint.parse(notAnEndpoint)).as(notAnEndpoint).isNull();
+        }
+    }
+
+    @Test
+    public void bothQualifiedFormsNameTheSameEndpoint() {
+        var qualifierFirst = Endpoint.parse("crm-central-america/cmiss/raw#stage");
+        var environmentFirst = Endpoint.parse("crm-central-america#stage/cmiss/raw");
+
+        assertThat(qualifierFirst.isQualifierFirst()).isTrue();
+        assertThat(qualifierFirst.qualifier()).isEqualTo("cmiss/raw");
+        assertThat(qualifierFirst).isEqualTo(environmentFirst).hasSameHashCodeAs(environmentFirst);
+        assertThat(qualifierFirst.environmentFirst()).isEqualTo(environmentFirst.toString());
+        assertThat(environmentFirst.qualifierFirst()).isEqualTo(qualifierFirst.toString());
+        assertThat(Endpoint.of("crm-central-america", "stage", "cmiss/raw")).isSameAs(environmentFirst);
+    }
+
+    @Test
+    public void formsRoundTrip() {
+        var random = new Random(19);
+        for (int i = 0; i < 10_000; i++) {
+            var qualifier = random.nextBoolean() ? null : part(random) + (random.nextBoolean() ? "" : "/" + part(random));
+            var endpoint = Endpoint.of(part(random), part(random), qualifier);
+
+            var qualifierFirst = Endpoint.parse(endpoint.qualifierFirst());
+            assertThat(qualifierFirst).isEqualTo(endpoint);
+            assertThat(qualifierFirst.environmentFirst()).isEqualTo(endpoint.toString());
+        }
+    }
+
+    @Test
+    public void translatedQueuesAreShared() {
+        var transform = RouteTransforms.queuesToEndpoints("stage");
+
+        var first = transform.apply(TestRoutes.route("1", TestRoutes.RULE, "emx-to-scms-stage", "emx-trash"));
+        var second = transform.apply(TestRoutes.route("2", TestRoutes.RULE, new String("emx-to-scms-stage"), "emx-to-cars-stage"));
+
+        assertThat(first.queues()).containsExactly("scms#stage", "emx-core-trash#stage");
+        assertThat(second.queues()).containsExactly("scms#stage", "cars#stage");
+        assertThat(second.queues().get(0)).isSameAs(first.queues().get(0));
+    }
+
+    @Test
+    public void readQueuesAreShared() throws Exception {
+        var routes = Main.marshalRoutes("""
+                {"routesList": [
+                  {"uuid": "1", "name": "a", "rule": "r", "enabled": true, "queues": ["emx-trash", "scms#stage"]},
+                  {"uuid": "2", "name": "b", "rule": "r", "enabled": true, "queues": ["scms#stage"]}
+                ]}
+                """).routes();
+
+        assertThat(routes.get(1).queues().get(0)).isSameAs(routes.get(0).queues().get(1));
+    }
+
+    private static String part(Random random) {
+        var alphabet = "abcxyz0129-_.%:;+";
+        var part = new StringBuilder();
+        for (int i = 1 + random.nextInt(8); i > 0; i--) {
+            part.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return part.toString();
+    }
+
+}
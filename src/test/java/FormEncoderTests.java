@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FormEncoderTests {
+
+    @Test
+    public void encodesEveryUpdateField() {
+        var route = new Route("32354541", "Vin & co", "endpoint==\"cars#stage/vendor\" || emxDatatype!=\"a+b\"",
+                "", true, List.of("scms#stage", "emx-to-cars-stage"), "2023-03-28", "2023-03-28");
+
+        assertThat(encode(route)).isEqualTo("name=Vin+%26+co"
+                + "&rule=endpoint%3D%3D%22cars%23stage%2Fvendor%22+%7C%7C+emxDatatype%21%3D%22a%2Bb%22"
+                + "&description="
+                + "&queues=scms%23stage%2Cemx-to-cars-stage"
+                + "&enabled=true"
+                + "&uuid=32354541");
+    }
+
+    @Test
+    public void encodesNonAsciiAsUtf8() {
+        var route = new Route("u-1_2.3*", "Café ☕ 😀", "a~b", null, false, List.of(), null, null);
+
+        assertThat(encode(route)).isEqualTo("name=Caf%C3%A9+%E2%98%95+%F0%9F%98%80"
+                + "&rule=a%7Eb"
+                + "&description"
+                + "&queues="
+                + "&enabled=false"
+                + "&uuid=u-1_2.3*");
+    }
+
+    @Test
+    public void bodiesAreNotSharedBetweenRoutes() {
+        var first = FormEncoder.encode(new Route("1", "a".repeat(2000), "", "", true, List.of(), null, null));
+        var second = FormEncoder.encode(new Route("2", "b", "", "", true, List.of(), null, null));
+
+        assertThat(new String(first, StandardCharsets.US_ASCII)).startsWith("name=aaaa").endsWith("&uuid=1");
+        assertThat(new String(second, StandardCharsets.US_ASCII)).isEqualTo(
+                "name=b&rule=&description=&queues=&enabled=true&uuid=2");
+    }
+
+    private static String encode(Route route) {
+        return new String(FormEncoder.encode(route), StandardCharsets.US_ASCII);
+    }
+
+}
@@ -0,0 +1,72 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LaneRunnerTests {
+
+    private final List<MockRouteManager> servers = new ArrayList<>();
+
+    @After
+    public void stopServers() {
+        servers.forEach(MockRouteManager::close);
+    }
+
+    @Test
+    public void lanesRunConcurrentlyWithTheirOwnClient() throws IOException {
+        var dev = lane("dev");
+        var stage = lane("stage");
+        var output = new ByteArrayOutputStream();
+
+        long start = System.nanoTime();
+        var outcomes = LaneRunner.run(List.of(dev, stage), HttpClient.newHttpClient(), (lane, client, out) -> {
+            var report = new RouteUpdater(client, RouteUpdater.Options.DEFAULT).updateAll(TestRoutes.routes(lane.name(), 10));
+            out.println(report.summary());
+        }, new PrintStream(output, true, StandardCharsets.UTF_8));
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(outcomes).allMatch(LaneRunner.LaneOutcome::succeeded);
+        assertThat(servers.get(0).updated()).hasSize(10).allMatch(uuid -> uuid.startsWith("dev"));
+        assertThat(servers.get(1).updated()).hasSize(10).allMatch(uuid -> uuid.startsWith("stage"));
+        // Each lane sends 10 updates of 100ms one at a time, so run one after another they would take 2s
+        assertThat(elapsed).isLessThan(Duration.ofMillis(1800));
+        assertThat(output.toString(StandardCharsets.UTF_8).lines()).containsExactlyInAnyOrder(
+                "[dev] Updated 10 of 10 routes, 0 failed, 0 unchanged routes skipped, 0 already applied.",
+                "[stage] Updated 10 of 10 routes, 0 failed, 0 unchanged routes skipped, 0 already applied.");
+    }
+
+    @Test
+    public void failingLaneDoesNotStopTheOthers() throws IOException {
+        var output = new ByteArrayOutputStream();
+
+        var outcomes = LaneRunner.run(List.of(lane("dev"), lane("prod")), HttpClient.newHttpClient(),
+                (lane, client, out) -> {
+                    if (lane.name().equals("prod")) {
+                        throw new IllegalStateException("No routes");
+                    }
+                    out.print("done");
+                }, new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        assertThat(outcomes).extracting(LaneRunner.LaneOutcome::succeeded).containsExactly(true, false);
+        assertThat(outcomes.get(1).failure()).hasMessage("No routes");
+        assertThat(output.toString(StandardCharsets.UTF_8).lines()).containsExactlyInAnyOrder(
+                "[dev] done", "[prod] Failed: java.lang.IllegalStateException: No routes");
+    }
+
+    private Lane lane(String name) throws IOException {
+        var server = MockRouteManager.start(false, Duration.ofMillis(100));
+        servers.add(server);
+        return new Lane(name, name, server.baseUri(), "user:password", 1000, 1, 1, Path.of("."));
+    }
+
+}
@@ -0,0 +1,73 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LaneTests {
+
+    private static final Properties CREDENTIALS = properties("""
+            emxaccountdev.username=devuser
+            emxaccountdev.password=devpass
+            emxaccountstage.username=stageuser
+            emxaccountstage.password=stagepass
+            """);
+
+    @Test
+    public void defaultsFollowTheLaneName() {
+        var lanes = Lane.load(new Properties(), CREDENTIALS, List.of("dev", "stage"));
+
+        assertThat(lanes).extracting(Lane::queueEnvironment).containsExactly("dev", "stage");
+        assertThat(lanes).extracting(Lane::baseUri).containsExactly(
+                "https://emx-route-manager-dev.churchofjesuschrist.org/api/emx-router",
+                "https://emx-route-manager-np.churchofjesuschrist.org/api/emx-router");
+        assertThat(lanes.get(1).authHeader()).isEqualTo("stageuser:stagepass");
+        assertThat(lanes.get(1).requestsPerSecond()).isEqualTo(50);
+        assertThat(lanes.get(1).batchSize()).isEqualTo(25);
+    }
+
+    @Test
+    public void configSelectsAndOverridesLanes() {
+        var config = properties("""
+                lanes=stage, dev
+                requestsPerSecond=20
+                lane.dev.requestsPerSecond=5
+                lane.stage.baseUri=http://localhost:8080/api/emx-router
+                lane.stage.concurrency=4
+                lane.stage.directory=runs/stage
+                """);
+
+        var lanes = Lane.load(config, CREDENTIALS, List.of());
+
+        assertThat(lanes).extracting(Lane::name).containsExactly("stage", "dev");
+        assertThat(lanes.get(0).baseUri()).isEqualTo("http://localhost:8080/api/emx-router");
+        assertThat(lanes.get(0).requestsPerSecond()).isEqualTo(20);
+        assertThat(lanes.get(0).concurrency()).isEqualTo(4);
+        assertThat(lanes.get(1).requestsPerSecond()).isEqualTo(5);
+        assertThat(lanes.get(0).file("RunMetrics", ".json")).isEqualTo(Path.of("runs/stage/RunMetrics-stage.json"));
+        assertThat(lanes.get(1).file("RunMetrics", ".json")).isEqualTo(Path.of("./RunMetrics-dev.json"));
+    }
+
+    @Test
+    public void laneWithoutCredentialsIsRejected() {
+        assertThatThrownBy(() -> Lane.load(new Properties(), CREDENTIALS, List.of("prod")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("emxaccountprod");
+    }
+
+    static Properties properties(String text) {
+        var properties = new Properties();
+        try {
+            properties.load(new StringReader(text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return properties;
+    }
+
+}
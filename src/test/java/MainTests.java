@@ -27,7 +27,7 @@ public class MainTests {
                   ]
                 }
                 """;
-        var routes = Main.convertQueuesToEndpoints(body);
+        var routes = Main.convertQueuesToEndpoints(body, "dev");
         var expectedQueues = List.of("scms#stage", "emx-core-trash#dev", "emx-core-archive#dev", "emx-core-healthcheck#dev", "cfis#dev%3Askim", "scms#test", "cfis#test%3B");
         assertThat(routes).singleElement().satisfies(route -> {
             assertThat(route.queues()).hasSize(7);
@@ -60,7 +60,7 @@ public class MainTests {
                   ]
                 }
                 """;
-        var routes = Main.convertEndpointsToQueues(body.getBytes(StandardCharsets.UTF_8));
+        var routes = Main.convertEndpointsToQueues(body.getBytes(StandardCharsets.UTF_8), "dev");
         var expectedQueues = List.of("emx-to-scms-stage", "emx-trash", "emx-to-archive-core", "emx-to-emx-healthcheck", "emx-to-cfis-dev:skim", "emx-to-scms-test", "emx-to-cfis-test;");
         assertThat(routes).singleElement().satisfies(route -> {
             assertThat(route.queues()).hasSize(7);
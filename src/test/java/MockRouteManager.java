@@ -0,0 +1,199 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process emx-route-manager serving /routes, /updateroute and /updateroutes on localhost, so
+ * updates can be tested and timed without the network. Updates to the uuid "bad" fail with a 500,
+ * the first update of "throttled" is answered with a 429, and a batch holding "oversized" is
+ * rejected as a whole with a 413.
+ */
+class MockRouteManager implements Closeable {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Route> routes = new LinkedHashMap<>();
+    private final Set<String> updated = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger throttled = new AtomicInteger();
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private final boolean batchSupported;
+    private final Duration latency;
+
+    private MockRouteManager(boolean batchSupported, Duration latency) throws IOException {
+        this.batchSupported = batchSupported;
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/api/emx-router/routes", this::routes);
+        server.createContext("/api/emx-router/updateroute", this::update);
+        server.createContext("/api/emx-router/updateroutes", this::updateBatch);
+        server.start();
+    }
+
+    static MockRouteManager start(boolean batchSupported, Duration latency) throws IOException {
+        return new MockRouteManager(batchSupported, latency);
+    }
+
+    String baseUri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/emx-router";
+    }
+
+    RouteManagerClient client(int concurrency) {
+        return new RouteManagerClient(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build(),
+                baseUri(),
+                "user:password",
+                new TokenBucket(1000, 1000),
+                new RetryPolicy(3, Duration.ofMillis(1), Duration.ofMillis(10)),
+                new AdaptiveConcurrencyLimit(concurrency, 1, concurrency));
+    }
+
+    synchronized void addRoutes(List<Route> added) {
+        added.forEach(route -> routes.put(route.uuid(), route));
+    }
+
+    synchronized Route route(String uuid) {
+        return routes.get(uuid);
+    }
+
+    /**
+     * The uuids of every route that was successfully updated.
+     */
+    Set<String> updated() {
+        return updated;
+    }
+
+    int maxActive() {
+        return maxActive.get();
+    }
+
+    int throttled() {
+        return throttled.get();
+    }
+
+    int singleRequests() {
+        return singleRequests.get();
+    }
+
+    int batchRequests() {
+        return batchRequests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void routes(HttpExchange exchange) throws IOException {
+        List<Route> table;
+        synchronized (this) {
+            table = new ArrayList<>(routes.values());
+        }
+        var body = MAPPER.writeValueAsBytes(Map.of("total", table.size(), "routesList", table));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private void update(HttpExchange exchange) throws IOException {
+        singleRequests.incrementAndGet();
+        Map<String, String> form = new HashMap<>();
+        for (var pair : new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).split("&")) {
+            int equals = pair.indexOf('=');
+            form.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        var queues = form.get("queues");
+        var route = new Route(form.get("uuid"), form.get("name"), form.get("rule"), form.get("description"),
+                Boolean.parseBoolean(form.get("enabled")),
+                queues.isEmpty() ? List.of() : Arrays.asList(queues.split(",")), null, null);
+        int status = apply(route);
+        if (status == 429) {
+            exchange.getResponseHeaders().set("Retry-After", "0");
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private void updateBatch(HttpExchange exchange) throws IOException {
+        batchRequests.incrementAndGet();
+        if (!batchSupported) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        var routesList = MAPPER.readTree(exchange.getRequestBody()).path("routesList");
+        for (var node : routesList) {
+            if ("oversized".equals(node.path("uuid").asText())) {
+                exchange.sendResponseHeaders(413, -1);
+                exchange.close();
+                return;
+            }
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (var node : routesList) {
+            List<String> queues = new ArrayList<>();
+            node.path("queues").forEach(queue -> queues.add(queue.asText()));
+            var route = new Route(node.path("uuid").asText(), node.path("name").asText(), node.path("rule").asText(),
+                    node.path("description").asText(), node.path("enabled").asBoolean(), queues, null, null);
+            results.add(Map.of("uuid", route.uuid(), "statusCode", apply(route), "message", ""));
+        }
+        var body = MAPPER.writeValueAsBytes(Map.of("results", results));
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private int apply(Route route) {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+        }
+        if ("bad".equals(route.uuid())) {
+            return 500;
+        }
+        if ("throttled".equals(route.uuid()) && throttled.getAndIncrement() == 0) {
+            return 429;
+        }
+        synchronized (this) {
+            var existing = routes.get(route.uuid());
+            routes.put(route.uuid(), existing == null ? route : new Route(route.uuid(), route.name(), route.rule(),
+                    route.description(), route.enabled(), route.queues(), existing.createdDate(),
+                    existing.modifiedDate()));
+        }
+        updated.add(route.uuid());
+        return 200;
+    }
+
+}
@@ -0,0 +1,107 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelTransformTests {
+
+    @Test
+    public void largeTablesKeepTheirOrder() {
+        var routes = routes(20_000);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        RouteTransform transform = route -> {
+            threads.add(Thread.currentThread());
+            return RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN.apply(route);
+        };
+
+        var transformed = new ParallelTransform(4, 1_000).applyAll(routes, transform);
+
+        assertThat(transformed).hasSize(routes.size());
+        for (int i = 0; i < routes.size(); i++) {
+            assertThat(transformed.get(i).uuid()).isEqualTo(routes.get(i).uuid());
+            assertThat(transformed.get(i).queues()).containsExactly("sys" + i + "/vendor#stage");
+        }
+        assertThat(threads).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    public void oneThreadPoolServesEveryTableUntilClosed() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        RouteTransform transform = route -> {
+            threads.add(Thread.currentThread());
+            return route;
+        };
+
+        try (var transforms = new ParallelTransform(2, 1_000)) {
+            for (int i = 0; i < 5; i++) {
+                transforms.applyAll(routes(10_000), transform);
+            }
+        }
+
+        threads.remove(Thread.currentThread());
+        assertThat(threads).isNotEmpty().hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void oneThreadPerCoreUsesTheCommonPool() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        try (var transforms = new ParallelTransform(Runtime.getRuntime().availableProcessors(), 1_000)) {
+            transforms.applyAll(routes(10_000), route -> {
+                threads.add(Thread.currentThread());
+                return route;
+            });
+        }
+
+        assertThat(threads).allSatisfy(thread -> assertThat(thread == Thread.currentThread()
+                || thread instanceof ForkJoinWorkerThread worker && worker.getPool() == ForkJoinPool.commonPool())
+                .isTrue());
+        assertThat(ForkJoinPool.commonPool().isShutdown()).isFalse();
+    }
+
+    @Test
+    public void smallTablesStayOnTheCallingThread() {
+        var routes = routes(999);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        var transformed = new ParallelTransform(4, 1_000).applyAll(routes, route -> {
+            threads.add(Thread.currentThread());
+            return route;
+        });
+
+        assertThat(transformed).isEqualTo(routes);
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    public void streamsInOrderOneChunkAtATime() {
+        var routes = routes(2_500);
+        List<String> seen = new ArrayList<>();
+
+        new ParallelTransform(4, 1_000).forEach(routes.iterator(), RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN,
+                (route, transformed) -> {
+                    assertThat(transformed.uuid()).isEqualTo(route.uuid());
+                    seen.add(transformed.queues().get(0));
+                });
+
+        assertThat(seen).hasSize(routes.size());
+        for (int i = 0; i < routes.size(); i++) {
+            assertThat(seen.get(i)).isEqualTo("sys" + i + "/vendor#stage");
+        }
+    }
+
+    private static List<Route> routes(int count) {
+        List<Route> routes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            routes.add(TestRoutes.route(String.valueOf(i), TestRoutes.RULE, "sys" + i + "#stage/vendor"));
+        }
+        return routes;
+    }
+
+}
@@ -0,0 +1,83 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProgressJournalTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenedJournalKnowsWhatWasApplied() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        try (var journal = ProgressJournal.open(file, 2)) {
+            journal.record("uuid1");
+            journal.record("uuid2");
+            journal.record("uuid2");
+            journal.record("uuid3");
+        }
+
+        try (var journal = ProgressJournal.open(file, 2)) {
+            assertThat(journal.appliedCount()).isEqualTo(3);
+            assertThat(journal.isApplied("uuid3")).isTrue();
+            assertThat(journal.isApplied("uuid4")).isFalse();
+        }
+        assertThat(Files.readAllLines(file)).containsExactly("uuid1", "uuid2", "uuid3");
+    }
+
+    @Test
+    public void onlyTheRunThatWroteTheJournalResumesFromIt() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        try (var journal = ProgressJournal.open(file, 1, "convertQueuesToEndpoints-3f2a9c1e7b4d")) {
+            journal.record("uuid1");
+        }
+
+        try (var journal = ProgressJournal.open(file, 1, "convertQueuesToEndpoints-3f2a9c1e7b4d")) {
+            assertThat(journal.appliedCount()).isEqualTo(1);
+            assertThat(journal.isApplied("uuid1")).isTrue();
+            journal.record("uuid2");
+        }
+        assertThatThrownBy(() -> ProgressJournal.open(file, 1, "rewriteRules-0c1d2e3f4a5b"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("was written by convertQueuesToEndpoints-3f2a9c1e7b4d, not by rewriteRules");
+        try (var journal = ProgressJournal.open(file, 1)) {
+            assertThat(journal.appliedCount()).isEqualTo(2);
+        }
+        assertThat(Files.readAllLines(file)).containsExactly("# run convertQueuesToEndpoints-3f2a9c1e7b4d", "uuid1", "uuid2");
+    }
+
+    @Test
+    public void remembersTheBackupOfTheRun() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        try (var journal = ProgressJournal.open(file, 1, "convertQueuesToEndpoints-3f2a9c1e7b4d")) {
+            assertThat(journal.backup()).isEmpty();
+            journal.recordBackup(file.resolveSibling("OriginalRoutes-dev.routes.partial"));
+            journal.record("uuid1");
+            journal.recordBackup(file.resolveSibling("OriginalRoutes-dev-0123456789abcdef.routes"));
+        }
+
+        try (var journal = ProgressJournal.open(file, 1, "convertQueuesToEndpoints-3f2a9c1e7b4d")) {
+            assertThat(journal.backup()).contains(file.resolveSibling("OriginalRoutes-dev-0123456789abcdef.routes"));
+            assertThat(journal.appliedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void partialLastLineDoesNotCorruptTheNextRecord() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        Files.writeString(file, "uuid1\nuui");
+
+        try (var journal = ProgressJournal.open(file, 1)) {
+            journal.record("uuid2");
+        }
+
+        assertThat(Files.readAllLines(file)).containsExactly("uuid1", "uui", "uuid2");
+    }
+
+}
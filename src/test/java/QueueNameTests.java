@@ -0,0 +1,77 @@
+import org.junit.Test;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueueNameTests {
+
+    @Test
+    public void parsesSystemsWithDashes() {
+        var queue = QueueName.parse("emx-to-crm-central-america-stage");
+
+        assertThat(queue).isEqualTo(new QueueName("crm-central-america", "stage"));
+        assertThat(queue.toEndpoint().toString()).isEqualTo("crm-central-america#stage");
+        assertThat(QueueName.parse("emx-to-cfis-dev:skim").toEndpoint().toString()).isEqualTo("cfis#dev%3Askim");
+        for (var notAQueue : List.of("emx-trash", "emx-to-scms", "emx-to--stage", "emx-to-scms-", "queue-to-scms-stage")) {
+            assertThat(QueueName.parse(notAQueue)).as(notAQueue).isNull();
+        }
+    }
+
+    @Test
+    public void endpointsWithoutAQueueNameAreNotConverted() {
+        var transform = RouteTransforms.endpointsToQueues("stage");
+        var queues = List.of("cars#stage/vendor", "cars/vendor#stage", "scms#dev-east", "emx-trash", "not an endpoint");
+        var route = new Route("1", "route", "a==\"b\"", null, true, queues, null, null);
+
+        assertThat(transform.apply(route)).isSameAs(route);
+    }
+
+    @Test
+    public void queuesRoundTripThroughEndpoints() {
+        var random = new Random(19);
+        for (int i = 0; i < 10_000; i++) {
+            var queue = new QueueName(name(random, true), name(random, false));
+
+            var endpoint = queue.toEndpoint();
+            assertThat(endpoint.system()).isEqualTo(URLEncoder.encode(queue.system(), StandardCharsets.UTF_8));
+            assertThat(endpoint.environment()).isEqualTo(URLEncoder.encode(queue.environment(), StandardCharsets.UTF_8));
+            assertThat(QueueName.parse(queue.toString())).isEqualTo(queue);
+            assertThat(QueueName.of(Endpoint.parse(endpoint.toString()))).isEqualTo(queue);
+        }
+    }
+
+    @Test
+    public void conversionsRoundTrip() {
+        var random = new Random(19);
+        var toEndpoints = RouteTransforms.queuesToEndpoints("stage");
+        var toQueues = RouteTransforms.endpointsToQueues("stage");
+        for (int i = 0; i < 1_000; i++) {
+            var queue = new QueueName(name(random, true), name(random, false)).toString();
+            var route = new Route("1", "route", "a==\"b\"", null, true, List.of(queue, "emx-trash"), null, null);
+
+            var converted = toEndpoints.apply(route);
+            assertThat(URLDecoder.decode(converted.queues().get(0).replace('#', '-'), StandardCharsets.UTF_8))
+                    .isEqualTo(queue.substring("emx-to-".length()));
+            assertThat(toQueues.apply(converted).queues()).isEqualTo(route.queues());
+        }
+    }
+
+    /**
+     * A random name of letters, digits, punctuation and non-ASCII code points, without '#'.
+     */
+    private static String name(Random random, boolean dashes) {
+        var alphabet = dashes ? "abcxyz019-_.*:;/%+ é€😀" : "abcxyz019_.*:;/%+ é€😀";
+        var name = new StringBuilder();
+        for (int i = 1 + random.nextInt(10); i > 0; i--) {
+            name.appendCodePoint(alphabet.codePointAt(alphabet.offsetByCodePoints(0,
+                    random.nextInt(alphabet.codePointCount(0, alphabet.length())))));
+        }
+        return name.toString();
+    }
+
+}
@@ -0,0 +1,91 @@
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitingTests {
+
+    @Test
+    public void concurrencyLimitGrowsOnSuccessAndHalvesWhenOverloaded() throws InterruptedException {
+        var limit = new AdaptiveConcurrencyLimit(8, 1, 16);
+
+        for (int i = 0; i < 64; i++) {
+            limit.acquire();
+            limit.release("GET /routes", false, 1_000_000);
+        }
+        assertThat(limit.limit()).isGreaterThan(8);
+
+        var grown = limit.limit();
+        limit.acquire();
+        limit.release("GET /routes", true, 1_000_000);
+        assertThat(limit.limit()).isEqualTo(grown / 2);
+    }
+
+    @Test
+    public void concurrencyLimitNeverLeavesItsBounds() throws InterruptedException {
+        var limit = new AdaptiveConcurrencyLimit(2, 2, 3);
+
+        for (int i = 0; i < 100; i++) {
+            limit.acquire();
+            limit.release("GET /routes", false, 1_000_000);
+        }
+        assertThat(limit.limit()).isEqualTo(3);
+
+        limit.acquire();
+        limit.release("GET /routes", true, 1_000_000);
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void latencyIsOnlyComparedWithRequestsOfTheSameKind() throws InterruptedException {
+        var limit = new AdaptiveConcurrencyLimit(8, 1, 16);
+        for (int i = 0; i < 32; i++) {
+            limit.acquire();
+            limit.release("PUT /updateroute", false, 1_000_000);
+        }
+        var grown = limit.limit();
+
+        limit.acquire();
+        limit.release("PUT /updateroutes", false, 25_000_000);
+        limit.acquire();
+        limit.release("PUT /updateroute", false, 1_500_000);
+        assertThat(limit.limit()).isGreaterThanOrEqualTo(grown);
+
+        limit.acquire();
+        limit.release("PUT /updateroute", false, 10_000_000);
+        assertThat(limit.limit()).isEqualTo(grown / 2);
+    }
+
+    @Test
+    public void tokenBucketPausesForRetryAfter() throws InterruptedException {
+        var bucket = new TokenBucket(1000, 10);
+        bucket.pause(Duration.ofMillis(100));
+
+        long start = System.nanoTime();
+        bucket.acquire();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(90));
+    }
+
+    @Test
+    public void retryDelayHonoursRetryAfter() {
+        var policy = new RetryPolicy(5, Duration.ofMillis(10), Duration.ofMillis(50));
+
+        assertThat(policy.delay(10, Optional.empty())).isLessThanOrEqualTo(Duration.ofMillis(50));
+        assertThat(policy.delay(1, Optional.of(Duration.ofSeconds(3)))).isEqualTo(Duration.ofSeconds(3));
+        assertThat(RetryPolicy.parseRetryAfter(Optional.of("7"))).contains(Duration.ofSeconds(7));
+        assertThat(RetryPolicy.parseRetryAfter(Optional.of("Wed, 21 Oct 2015 07:28:00 GMT")))
+                .contains(Duration.ZERO);
+        assertThat(RetryPolicy.parseRetryAfter(Optional.of("soon"))).isEmpty();
+    }
+
+    @Test
+    public void onlyIdempotentCallsAreRetried() {
+        assertThat(RetryPolicy.DEFAULT.canRetry("PUT", 1)).isTrue();
+        assertThat(RetryPolicy.DEFAULT.canRetry("POST", 1)).isFalse();
+        assertThat(RetryPolicy.DEFAULT.canRetry("GET", RetryPolicy.DEFAULT.maxAttempts())).isFalse();
+    }
+
+}
@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RedundantRoutesTests {
+
+    @Test
+    public void canonicalRulesIgnoreHowTheRuleIsWritten() {
+        var canonical = RuleCanonicalizer.canonical("objectType==\"Unit\" && endpoint==\"cars#stage/vendor\"");
+
+        assertThat(canonical).isEqualTo("endpoint==\"cars#stage/vendor\" && objectType==\"Unit\"");
+        for (var rule : List.of(
+                "( endpoint==\"cars#stage/vendor\"\n&& objectType==\"Unit\" )",
+                "objectType==\"Unit\" && (endpoint==\"cars#stage/vendor\" && !!objectType==\"Unit\")")) {
+            assertThat(RuleCanonicalizer.canonical(rule)).as(rule).isEqualTo(canonical);
+        }
+        assertThat(RuleCanonicalizer.canonical("!(a==\"1\") || (b==\"2\" || a!=\"1\")"))
+                .isEqualTo("a!=\"1\" || b==\"2\"");
+        assertThat(RuleCanonicalizer.canonical("!(a==\"1\" && b==\"2\")")).isEqualTo("!(a==\"1\" && b==\"2\")");
+    }
+
+    @Test
+    public void singleEndpointTermsKeepTheirForm() {
+        assertThat(RuleCanonicalizer.canonical("endpoint==\"cars/vendor#stage\""))
+                .isEqualTo("endpoint==\"cars/vendor#stage\"")
+                .isNotEqualTo(RuleCanonicalizer.canonical("endpoint==\"cars#stage/vendor\""));
+        assertThat(RuleCanonicalizer.canonical("endpoint==\"cars/vendor#stage\" || endpoint==\"boats#stage/vendor\""))
+                .isEqualTo("endpoint==\"boats#stage/vendor\" || endpoint==\"cars/vendor#stage\"");
+        assertThat(RuleCanonicalizer.canonical("endpoint!=\"cars/vendor#stage\" && endpoint!=\"cars#stage/vendor\""))
+                .isEqualTo("endpoint!=\"cars#stage/vendor\" && endpoint!=\"cars/vendor#stage\"");
+
+        var qualifierFirst = TestRoutes.route("1", "endpoint==\"cars/vendor#stage\"", true, "scms#stage");
+        var environmentFirst = TestRoutes.route("2", "endpoint==\"cars#stage/vendor\"", true, "scms#stage");
+        var analysis = RedundantRoutes.analyze(List.of(qualifierFirst, environmentFirst), "stage");
+
+        assertThat(analysis.duplicates()).isEmpty();
+        assertThat(analysis.subsumed()).isEmpty();
+    }
+
+    @Test
+    public void theRouteWithBothEndpointFormsIsKept() {
+        var pair = "(endpoint==\"cars/vendor#stage\" || endpoint==\"cars#stage/vendor\")";
+        assertThat(RuleCanonicalizer.canonical(pair))
+                .isEqualTo(RuleCanonicalizer.canonical(
+                        "endpoint==\"cars#stage/vendor\" || endpoint==\"cars/vendor#stage\""))
+                .isNotEqualTo(RuleCanonicalizer.canonical("endpoint==\"cars#stage/vendor\""));
+
+        var environmentFirst = TestRoutes.route("1", "endpoint==\"cars#stage/vendor\"", true, "scms#stage");
+        var both = TestRoutes.route("2", pair, true, "scms#stage");
+        var qualifierFirst = TestRoutes.route("3", "endpoint==\"cars/vendor#stage\"", true, "scms#stage");
+        var unitsOfBoth = TestRoutes.route("4", pair + " && objectType==\"Unit\"", true, "cfis#stage");
+        var units = TestRoutes.route("5", "endpoint==\"cars#stage/vendor\"", true, "cfis#stage");
+        var analysis = RedundantRoutes.analyze(List.of(environmentFirst, both, qualifierFirst, unitsOfBoth, units),
+                "stage");
+
+        assertThat(analysis.duplicates()).isEmpty();
+        assertThat(analysis.subsumed()).containsExactly(
+                new RedundantRoutes.Subsumed(environmentFirst, both),
+                new RedundantRoutes.Subsumed(qualifierFirst, both));
+    }
+
+    @Test
+    public void findsDuplicateAndSubsumedRoutesWithTheSameQueues() throws Exception {
+        var vin = TestRoutes.route("1", "endpoint==\"cars#stage\" && objectType==\"Unit\"", true, "emx-to-scms-stage");
+        var elend = TestRoutes.route("2", "objectType==\"Unit\"  &&  endpoint==\"cars#stage\"", true, "scms#stage");
+        var rand = TestRoutes.route("3", "objectType==\"Unit\" && endpoint==\"cars#stage\"", true, "cfis#stage");
+        var mat = TestRoutes.route("4", "endpoint==\"cars#stage\"", true, "scms#stage");
+        var perrin = TestRoutes.route("5", "endpoint==\"cars#stage\" && (objectType==\"Unit\" || objectType==\"Person\")", true,
+                "scms#stage");
+        var egwene = TestRoutes.route("6", "objectType==\"Person\"", false, "cfis#stage");
+        var nynaeve = TestRoutes.route("7", "objectType==\"Person\" && a==\"b\"", true, "cfis#stage");
+        var invalid = TestRoutes.route("8", "objectType==", true, "scms#stage");
+
+        var analysis = RedundantRoutes.analyze(List.of(vin, elend, rand, mat, perrin, egwene, nynaeve, invalid), "stage");
+
+        assertThat(analysis.duplicates()).isEmpty();
+        assertThat(analysis.subsumed()).containsExactly(
+                new RedundantRoutes.Subsumed(vin, mat),
+                new RedundantRoutes.Subsumed(elend, mat),
+                new RedundantRoutes.Subsumed(perrin, mat));
+        assertThat(analysis.invalid()).containsExactly(invalid);
+
+        var duplicatesOnly = RedundantRoutes.analyze(List.of(vin, elend, rand), "stage");
+        assertThat(duplicatesOnly.duplicates()).singleElement().satisfies(duplicates -> {
+            assertThat(duplicates.canonicalRule()).isEqualTo("endpoint==\"cars#stage\" && objectType==\"Unit\"");
+            assertThat(duplicates.routes()).containsExactly(vin, elend);
+        });
+        assertThat(duplicatesOnly.subsumed()).isEmpty();
+        var report = new StringWriter();
+        duplicatesOnly.write(report);
+        assertThat(report.toString()).isEqualTo("""
+                duplicates: endpoint=="cars#stage" && objectType=="Unit"
+                    1 route1
+                    2 route2
+                1 of 3 routes are redundant: 1 groups of duplicates, 0 subsumed routes, 0 routes with invalid rules skipped.
+                """);
+    }
+
+}
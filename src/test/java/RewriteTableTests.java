@@ -0,0 +1,72 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RewriteTableTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replacesWholeWordsOutsideQuotes() {
+        var table = RewriteTable.of(Map.of(
+                "emxSourceSystem", "endpoint.system",
+                "emxSourceEnvironment", "endpoint.env"));
+
+        assertThat(table.rewrite("emxSourceSystem==\"cars\" && (emxSourceEnvironment==\"stage\")"))
+                .isEqualTo("endpoint.system==\"cars\" && (endpoint.env==\"stage\")");
+        assertThat(table.rewrite("myemxSourceSystem==\"a\" && emxSourceSystem2==\"b\" && emxSourceSystem.id==\"c\""))
+                .isEqualTo("myemxSourceSystem==\"a\" && emxSourceSystem2==\"b\" && emxSourceSystem.id==\"c\"");
+        assertThat(table.rewrite("a==\"emxSourceSystem \\\" emxSourceSystem\" || emxSourceSystem!=\"x\""))
+                .isEqualTo("a==\"emxSourceSystem \\\" emxSourceSystem\" || endpoint.system!=\"x\"");
+    }
+
+    @Test
+    public void returnsTheSameStringWhenNothingMatches() {
+        var table = RewriteTable.of(Map.of("endpoint.system", "emxSourceSystem"));
+        var rule = "endpoint.env==\"stage\" && a==\"endpoint.system\"";
+
+        assertThat(table.rewrite(rule)).isSameAs(rule);
+        var route = new Route("1", "Vin", rule, null, true, List.of(), null, null);
+        assertThat(table.onRules().apply(route)).isSameAs(route);
+    }
+
+    @Test
+    public void longestOverlappingWordWins() {
+        var table = RewriteTable.of(Map.of(
+                "a.b", "x",
+                "a.b.c", "y",
+                "b.c", "z",
+                "==", " is ",
+                "sys", "système",
+                "ünï", "uni"));
+
+        assertThat(table.rewrite("a.b.c==\"1\" && a.b==\"2\" && b.c==\"3\"")).isEqualTo("y is \"1\" && x is \"2\" && z is \"3\"");
+        assertThat(table.rewrite("ünï==\"1\" && sys==\"2\" && xünï==\"3\"")).isEqualTo("uni is \"1\" && système is \"2\" && xünï is \"3\"");
+    }
+
+    @Test
+    public void loadsTablesFromPropertiesFiles() throws Exception {
+        var file = folder.newFile("rewrites.properties").toPath();
+        Files.writeString(file, """
+                # header renames
+                emxDatatype = endpoint.datatype
+                objectType=message.type
+                """);
+
+        var table = RewriteTable.load(file);
+
+        assertThat(table.rewrite("objectType==\"Unit\" && emxDatatype==\"vendor\""))
+                .isEqualTo("message.type==\"Unit\" && endpoint.datatype==\"vendor\"");
+        assertThatThrownBy(() -> RewriteTable.of(Map.of("a\"", "b")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
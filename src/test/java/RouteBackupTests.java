@@ -0,0 +1,152 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RouteBackupTests {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void looksUpRoutesByUuidAndIteratesInBackupOrder() throws IOException {
+        var routes = routes(500);
+        var file = write("OriginalRoutes1", routes);
+
+        assertThat(file.getFileName().toString()).matches("OriginalRoutes1-[0-9a-f]{16}\\.routes");
+        assertThat(RouteBackup.isBackup(file)).isTrue();
+        try (var backup = RouteBackup.open(MAPPER, file)) {
+            assertThat(backup.size()).isEqualTo(500);
+            assertThat(backup.get("uuid321")).contains(routes.get(321));
+            assertThat(backup.get("missing")).isEmpty();
+            List<Route> read = new ArrayList<>();
+            backup.forEach(read::add);
+            assertThat(read).isEqualTo(routes);
+        }
+    }
+
+    @Test
+    public void identicalSnapshotsAreOnlyKeptOnce() throws IOException {
+        var first = write("OriginalRoutes1", routes(10));
+        var second = write("OriginalRoutes2", routes(10));
+        var third = write("OriginalRoutes3", routes(11));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isNotEqualTo(first);
+        try (var files = Files.list(folder.getRoot().toPath())) {
+            assertThat(files).hasSize(2);
+        }
+    }
+
+    @Test
+    public void readsTheRoutesOfAnInterruptedBackup() throws IOException {
+        var writer = RouteBackupWriter.create(MAPPER, folder.getRoot().toPath(), "OriginalRoutes1");
+        for (var route : routes(3)) {
+            writer.write(route);
+        }
+        var partial = writer.file();
+        var bytes = Files.readAllBytes(partial);
+        Files.write(partial, Arrays.copyOf(bytes, bytes.length - 5));
+
+        try (var backup = RouteBackup.open(MAPPER, partial)) {
+            assertThat(backup.uuids()).containsExactly("uuid0", "uuid1");
+        }
+    }
+
+    @Test
+    public void failedFetchLeavesNoBackupBehind() throws IOException {
+        var directory = folder.getRoot().toPath();
+        var lane = new Lane("dev", "dev", "http://localhost", "user:password", 1000, 2, 1, directory);
+        var server = MockRouteManager.start(true, Duration.ZERO);
+        server.close();
+
+        assertThatThrownBy(() -> Main.runConversion(lane, server.client(1), new PrintStream(new ByteArrayOutputStream()),
+                List.of(), "convert-test", ParallelTransform.DEFAULT, AuditLog.Options.DEFAULT, null))
+                .isInstanceOf(IllegalStateException.class);
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).noneMatch(file -> file.getFileName().toString().startsWith("OriginalRoutes"));
+        }
+    }
+
+    @Test
+    public void resumedConversionKeepsTheBackupOfTheFirstAttempt() throws IOException {
+        var directory = folder.getRoot().toPath();
+        var lane = new Lane("dev", "dev", "http://localhost", "user:password", 1000, 2, 1, directory);
+        List<Route> originals = new ArrayList<>();
+        for (var uuid : List.of("uuid1", "uuid2", "bad")) {
+            originals.add(TestRoutes.route(uuid, TestRoutes.RULE, "cars#stage/vendor"));
+        }
+        var output = new ByteArrayOutputStream();
+
+        try (var server = MockRouteManager.start(true, Duration.ZERO)) {
+            server.addRoutes(originals);
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Main.runConversion(lane, server.client(1), new PrintStream(output, true, StandardCharsets.UTF_8),
+                        List.of(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN), "convert-test",
+                        ParallelTransform.DEFAULT,
+                        AuditLog.Options.DEFAULT, null);
+            }
+            assertThat(server.route("uuid1").queues()).containsExactly("cars/vendor#stage");
+        }
+
+        List<Path> backups;
+        try (var files = Files.list(directory)) {
+            backups = files.filter(file -> file.getFileName().toString().startsWith("OriginalRoutes")).toList();
+        }
+        assertThat(backups).singleElement().satisfies(file -> {
+            assertThat(output.toString(StandardCharsets.UTF_8)).contains("Keeping " + file);
+            try (var backup = RouteBackup.open(MAPPER, file)) {
+                List<Route> read = new ArrayList<>();
+                backup.forEach(read::add);
+                assertThat(read).isEqualTo(originals);
+            }
+        });
+    }
+
+    @Test
+    public void jsonBackupsAreNotRouteBackups() throws IOException {
+        var file = folder.newFile("OriginalRoutes.json").toPath();
+        Files.writeString(file, "{\"routesList\":[]}");
+
+        assertThat(RouteBackup.isBackup(file)).isFalse();
+    }
+
+    private Path write(String name, List<Route> routes) throws IOException {
+        var writer = RouteBackupWriter.create(MAPPER, folder.getRoot().toPath(), name);
+        try (writer) {
+            for (var route : routes) {
+                writer.write(route);
+            }
+        }
+        return writer.file();
+    }
+
+    private static List<Route> routes(int count) {
+        List<Route> routes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            routes.add(TestRoutes.route("uuid" + i,
+                    "emxSourceSystem==\"cars\" && emxDatatype==\"vendor" + i + "\"", i % 3 != 0,
+                    "emx-to-scms-stage", "emx-to-cars-" + i + "-stage"));
+        }
+        return routes;
+    }
+
+}
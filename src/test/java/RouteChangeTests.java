@@ -0,0 +1,33 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteChangeTests {
+
+    private static final Route VIN = new Route("32354541", "Vin", "endpoint==\"cars#stage/vendor\"", "", true,
+            List.of("scms#stage"), "2023-03-28", "2023-03-28");
+
+    @Test
+    public void equalContentIsNotAChange() {
+        var copy = new Route(VIN.uuid(), VIN.name(), VIN.rule(), VIN.description(), VIN.enabled(),
+                List.copyOf(VIN.queues()), VIN.createdDate(), "2024-01-01");
+
+        assertThat(new RouteChange(VIN, VIN).changed()).isFalse();
+        assertThat(new RouteChange(VIN, copy).changed()).isFalse();
+        assertThat(new RouteChange(VIN, copy).changedFields()).isEmpty();
+    }
+
+    @Test
+    public void reportsEveryChangedField() {
+        var changed = new Route(VIN.uuid(), VIN.name(), "endpoint==\"cars/vendor#stage\"", VIN.description(), false,
+                List.of("scms/raw#stage"), VIN.createdDate(), VIN.modifiedDate());
+
+        var change = new RouteChange(VIN, changed);
+
+        assertThat(change.changed()).isTrue();
+        assertThat(change.changedFields()).containsExactly("rule", "enabled", "queues");
+    }
+
+}
@@ -0,0 +1,50 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoutePipelineTests {
+
+    private static final Route ELEND = new Route("32354541274", "Elend",
+            "emxSourceSystem==\"cars\" && emxSourceEnvironment==\"stage\"", "", true,
+            List.of("emx-to-scms-stage", "crm-aveng#stage/cmiss"), "2023-03-28", "2023-03-28");
+    private static final Route RAND = new Route("32354541", "Rand",
+            "endpoint==\"cars/vendor#stage\"", "", true, List.of("scms#stage"), "2023-03-28", "2023-03-28");
+
+    @Test
+    public void appliesEveryTransformInOnePass() {
+        var pipeline = RoutePipeline.builder()
+                .then(RouteTransforms.queuesToEndpoints("stage"))
+                .then(RouteTransforms.RULE_TO_ENDPOINT_PARTS)
+                .then(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN)
+                .build();
+
+        var route = pipeline.apply(ELEND);
+
+        assertThat(route.rule()).isEqualTo("endpoint.system==\"cars\" && endpoint.env==\"stage\"");
+        assertThat(route.queues()).containsExactly("scms#stage", "crm-aveng/cmiss#stage");
+        assertThat(route.uuid()).isEqualTo(ELEND.uuid());
+        assertThat(route.modifiedDate()).isEqualTo(ELEND.modifiedDate());
+    }
+
+    @Test
+    public void untouchedRoutesAreReturnedAsTheSameInstance() {
+        var pipeline = RoutePipeline.builder()
+                .then(RouteTransforms.queuesToEndpoints("stage"))
+                .then(RouteTransforms.RULE_TO_ENDPOINT_PARTS)
+                .then(RouteTransforms.ENDPOINT_PATTERN)
+                .then(RouteTransforms.CLEANUP_ENDPOINT_PATTERN)
+                .then(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN)
+                .build();
+
+        assertThat(pipeline.apply(RAND)).isSameAs(RAND);
+        assertThat(pipeline.applyAll(List.of(RAND, ELEND)).get(0)).isSameAs(RAND);
+    }
+
+    @Test
+    public void emptyPipelineChangesNothing() {
+        assertThat(RoutePipeline.builder().build().apply(ELEND)).isSameAs(ELEND);
+    }
+
+}
@@ -0,0 +1,71 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteStreamTests {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    @Test
+    public void readsRoutesOneAtATime() throws IOException {
+        String body = """
+                {
+                  "total": 2,
+                  "paging": {"page": 1, "pages": [1]},
+                  "routesList":[
+                    {
+                      "uuid": "32354541274",
+                      "name": "Elend",
+                      "rule": "emxSourceSystem==\\"cars\\" && emxSourceEnvironment==\\"stage\\"",
+                      "description": "",
+                      "enabled": true,
+                      "queues": ["emx-to-scms-stage"],
+                      "createdDate": "2023-03-28",
+                      "modifiedDate": "2023-03-28"
+                    },
+                    {
+                      "uuid": "32354541",
+                      "name": "Rand",
+                      "rule": "endpoint==\\"cars#stage/vendor\\"",
+                      "description": "",
+                      "enabled": false,
+                      "queues": ["scms#stage"],
+                      "createdDate": "2023-03-28",
+                      "modifiedDate": "2023-03-29"
+                    }
+                  ]
+                }
+                """;
+        List<Route> routes = new ArrayList<>();
+        try (var reader = new RouteStreamReader(MAPPER, input(body))) {
+            reader.forEachRemaining(routes::add);
+        }
+
+        assertThat(routes).extracting(Route::name).containsExactly("Elend", "Rand");
+        assertThat(routes.get(1).enabled()).isFalse();
+        assertThat(routes.get(1).modifiedDate()).isEqualTo("2023-03-29");
+    }
+
+    @Test
+    public void emptyOrMissingRoutesListHasNoRoutes() throws IOException {
+        try (var reader = new RouteStreamReader(MAPPER, input("{\"routesList\":[]}"))) {
+            assertThat(reader.hasNext()).isFalse();
+        }
+        try (var reader = new RouteStreamReader(MAPPER, input("{\"total\":0}"))) {
+            assertThat(reader.hasNext()).isFalse();
+        }
+    }
+
+    private static ByteArrayInputStream input(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
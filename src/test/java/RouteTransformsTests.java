@@ -0,0 +1,74 @@
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteTransformsTests {
+
+    @Test
+    public void rewritersReturnTheSameRouteWhenNothingMatches() {
+        var headers = TestRoutes.route("32354541", "emxSourceSystem==\"cars\" && emxDatatype==\"vendor\"", "scms#stage");
+        var qualifierFirst = TestRoutes.route("32354541", "endpoint==\"cars/vendor#stage\" && s3.object.path==\"joe/bob\"", "crm-central-america/cmiss#stage");
+        var unqualified = TestRoutes.route("32354541", "endpoint==\"ews-payment#test\"", "emx-to-scms-stage");
+
+        for (var route : List.of(headers, qualifierFirst, unqualified)) {
+            assertThat(RouteTransforms.ENDPOINT_PATTERN.apply(route)).isSameAs(route);
+            assertThat(RouteTransforms.CLEANUP_ENDPOINT_PATTERN.apply(route)).isSameAs(route);
+            assertThat(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN.apply(route)).isSameAs(route);
+        }
+    }
+
+    @Test
+    public void endpointPatternRewritesEveryTermOfTheLastEndpoint() {
+        var route = TestRoutes.route("32354541", "(endpoint==\"cars#stage/vendor\" && a==\"b\") || (endpoint==\"cars#stage/vendor\" && c==\"d\")", "scms#stage");
+
+        assertThat(RouteTransforms.ENDPOINT_PATTERN.apply(route).rule()).isEqualTo(
+                "((endpoint==\"cars/vendor#stage\" || endpoint==\"cars#stage/vendor\") && a==\"b\")"
+                        + " || ((endpoint==\"cars/vendor#stage\" || endpoint==\"cars#stage/vendor\") && c==\"d\")");
+    }
+
+    @Test
+    public void endpointPatternIgnoresHeadersEndingInEndpoint() {
+        var route = TestRoutes.route("32354541", "sourceendpoint==\"cars#stage/vendor\"", "scms#stage");
+
+        assertThat(RouteTransforms.ENDPOINT_PATTERN.apply(route)).isSameAs(route);
+    }
+
+    @Test
+    public void cleanupOnlyCollapsesPairsOfTheSameEndpoint() {
+        var mismatched = TestRoutes.route("32354541", "(endpoint==\"cars/vendor#stage\" || endpoint==\"scms#stage/vendor\")", "scms#stage");
+        var matched = TestRoutes.route("32354541", "( endpoint==\"cars/vendor#stage\"\n || endpoint==\"cars#stage/vendor\" ) && a==\"b\"", "scms#stage");
+
+        assertThat(RouteTransforms.CLEANUP_ENDPOINT_PATTERN.apply(mismatched)).isSameAs(mismatched);
+        assertThat(RouteTransforms.CLEANUP_ENDPOINT_PATTERN.apply(matched).rule())
+                .isEqualTo("endpoint==\"cars/vendor#stage\" && a==\"b\"");
+    }
+
+    @Test
+    public void qualifierEndpointsAreSwitched() {
+        assertThat(RouteTransforms.toQualifierFirst("crm-aveng#stage/cmiss")).isEqualTo("crm-aveng/cmiss#stage");
+        assertThat(RouteTransforms.toQualifierFirst("crm-aveng/cmiss#stage")).isEqualTo("crm-aveng/cmiss#stage");
+        assertThat(RouteTransforms.toQualifierFirst("scms#stage")).isEqualTo("scms#stage");
+        assertThat(RouteTransforms.toQualifierFirst("scms#stage/")).isEqualTo("scms#stage/");
+        assertThat(RouteTransforms.toQualifierFirst("#stage/raw")).isEqualTo("#stage/raw");
+    }
+
+    @Test(timeout = 2_000)
+    public void rewritersStayLinearOnPathologicalRules() {
+        var rules = List.of(
+                "endpoint==\"" + "a/".repeat(200_000),
+                "endpoint==\"" + "a/".repeat(100_000) + "\"" + " && endpoint==\"b".repeat(10_000),
+                "(endpoint==\"a/b#c\" || ".repeat(20_000) + "x==\"y\"",
+                "endpoint==\"a#b/c\" && ".repeat(20_000) + "x==\"y\"",
+                "(endpoint==\"a/c#b\" || endpoint==\"a#b/c\") && ".repeat(20_000) + "x==\"y\"",
+                " ".repeat(200_000) + "endpoint==\"a#b/c\"");
+        for (var rule : rules) {
+            var route = TestRoutes.route("32354541", rule, "a#" + "b/".repeat(100_000));
+            RouteTransforms.ENDPOINT_PATTERN.apply(route);
+            RouteTransforms.CLEANUP_ENDPOINT_PATTERN.apply(route);
+            RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN.apply(route);
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteUpdaterTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockRouteManager server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = MockRouteManager.start(true, Duration.ofMillis(20));
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void updateAllReportsEveryRoute() {
+        var report = updater(4).updateAll(routes(40, "bad"));
+
+        assertThat(report.results()).hasSize(41);
+        assertThat(report.successes()).hasSize(40);
+        assertThat(report.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.uuid()).isEqualTo("bad");
+            assertThat(failure.statusCode()).isEqualTo(500);
+        });
+        assertThat(server.updated()).hasSize(40).contains("uuid0", "uuid39");
+        assertThat(server.maxActive()).isLessThanOrEqualTo(4);
+        assertThat(server.batchRequests()).isZero();
+    }
+
+    @Test
+    public void unreachableServerIsReportedAsFailure() {
+        server.close();
+
+        var report = updater(2).updateAll(List.of(TestRoutes.route("uuid1")));
+
+        assertThat(report.failures()).singleElement().satisfies(failure ->
+                assertThat(failure.statusCode()).isEqualTo(UpdateResult.NO_RESPONSE));
+    }
+
+    @Test
+    public void throttledUpdateIsRetried() {
+        var report = updater(2).updateAll(List.of(TestRoutes.route("throttled")));
+
+        assertThat(report.failures()).isEmpty();
+        assertThat(server.throttled()).isEqualTo(2);
+        assertThat(server.updated()).containsExactly("throttled");
+    }
+
+    @Test
+    public void unchangedRoutesAreSkipped() {
+        var updater = updater(2);
+        var original = TestRoutes.route("uuid1");
+        updater.submit(new RouteChange(original, original));
+        updater.submit(new RouteChange(TestRoutes.route("uuid2"), TestRoutes.route("uuid2")));
+        var changed = TestRoutes.route("uuid3");
+        updater.submit(new RouteChange(changed, RouteTransforms.withRule(changed, "endpoint==\"a#b\"")));
+
+        var report = updater.finish();
+
+        assertThat(report.skipped()).isEqualTo(2);
+        assertThat(report.successes()).singleElement().satisfies(result ->
+                assertThat(result.uuid()).isEqualTo("uuid3"));
+        assertThat(server.updated()).containsExactly("uuid3");
+        assertThat(server.route("uuid3").rule()).isEqualTo("endpoint==\"a#b\"");
+    }
+
+    @Test
+    public void journalledRoutesAreNotSentAgain() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        Files.writeString(file, "uuid1\n");
+
+        try (var journal = ProgressJournal.open(file, 1)) {
+            var updater = new RouteUpdater(server.client(2), new RouteUpdater.Options(journal, 1, null, null));
+            updater.submit(TestRoutes.route("uuid1"));
+            updater.submit(TestRoutes.route("uuid2"));
+            updater.submit(TestRoutes.route("bad"));
+            var report = updater.finish();
+
+            assertThat(report.resumed()).isEqualTo(1);
+            assertThat(server.updated()).containsExactly("uuid2");
+        }
+        assertThat(Files.readAllLines(file)).containsExactly("uuid1", "uuid2");
+    }
+
+    @Test
+    public void routesAreSentInBatches() {
+        var report = new RouteUpdater(server.client(2), new RouteUpdater.Options(null, 10, null, null))
+                .updateAll(routes(45, "bad"));
+
+        assertThat(server.batchRequests()).isEqualTo(5);
+        assertThat(server.singleRequests()).isZero();
+        assertThat(report.results()).extracting(UpdateResult::uuid).startsWith("uuid0", "uuid1").endsWith("bad");
+        assertThat(report.successes()).hasSize(45);
+        assertThat(report.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.uuid()).isEqualTo("bad");
+            assertThat(failure.name()).isEqualTo("routebad");
+            assertThat(failure.statusCode()).isEqualTo(500);
+        });
+        assertThat(server.updated()).hasSize(45);
+    }
+
+    @Test
+    public void rejectedBatchIsSentOneRouteAtATime() {
+        var routes = new ArrayList<>(routes(20));
+        routes.add(5, TestRoutes.route("oversized"));
+        routes.add(15, TestRoutes.route("bad"));
+
+        var report = new RouteUpdater(server.client(1), new RouteUpdater.Options(null, 10, null, null))
+                .updateAll(routes);
+
+        assertThat(server.batchRequests()).isEqualTo(3);
+        assertThat(server.singleRequests()).isEqualTo(10);
+        assertThat(report.successes()).hasSize(21);
+        assertThat(report.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.uuid()).isEqualTo("bad");
+            assertThat(failure.statusCode()).isEqualTo(500);
+        });
+        assertThat(server.updated()).hasSize(21).contains("oversized", "uuid0", "uuid19");
+    }
+
+    @Test
+    public void fallsBackToSingleUpdatesWithoutBatchSupport() throws IOException {
+        server.close();
+        server = MockRouteManager.start(false, Duration.ofMillis(1));
+
+        var report = new RouteUpdater(server.client(1), new RouteUpdater.Options(null, 10, null, null))
+                .updateAll(routes(30));
+
+        assertThat(server.batchRequests()).isEqualTo(1);
+        assertThat(server.singleRequests()).isEqualTo(30);
+        assertThat(report.successes()).hasSize(30);
+    }
+
+    private RouteUpdater updater(int concurrency) {
+        return new RouteUpdater(server.client(concurrency), RouteUpdater.Options.DEFAULT);
+    }
+
+    private static List<Route> routes(int count, String... extra) {
+        List<Route> routes = new ArrayList<>(TestRoutes.routes("uuid", count));
+        for (var uuid : extra) {
+            routes.add(TestRoutes.route(uuid));
+        }
+        return routes;
+    }
+
+}
@@ -0,0 +1,86 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoutingSimulatorTests {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    private static final RoutesList ROUTES = new RoutesList(List.of(
+            TestRoutes.route("1", "emxSourceSystem==\"cars\" && emxSourceEnvironment==\"stage\" && emxDatatype==\"vendor\"", true, "scms#stage"),
+            TestRoutes.route("2", "(endpoint==\"cars/vendor#stage\" || endpoint==\"cars#stage/vendor\")", true, "cfis#stage"),
+            TestRoutes.route("3", "emxDatatype!=\"vendor\"", true, "emx-core-archive#stage"),
+            TestRoutes.route("4", "emxSourceSystem==\"cars\"", false, "emx-trash"),
+            TestRoutes.route("5", "emxSourceSystem==\"cars\" && (emxDatatype==\"vendor\" || emxDatatype==\"person\")", true, "scms#stage"),
+            TestRoutes.route("6", "this is not a rule", true, "emx-trash")));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resolvesQueuesOfEveryMatchingRoute() {
+        var simulator = new RoutingSimulator(ROUTES);
+
+        var vendor = Map.of("emxSourceSystem", "cars", "emxSourceEnvironment", "stage", "emxDatatype", "vendor");
+        assertThat(simulator.match(vendor)).extracting(Route::uuid).containsExactly("1", "5");
+        assertThat(simulator.resolve(vendor)).containsExactly("scms#stage");
+
+        var endpoint = Map.of("endpoint", "cars#stage/vendor", "emxDatatype", "person");
+        assertThat(simulator.resolve(endpoint)).containsExactly("cfis#stage", "emx-core-archive#stage");
+
+        assertThat(simulator.invalidRoutes()).extracting(Route::uuid).containsExactly("6");
+    }
+
+    @Test
+    public void indexAgreesWithEvaluatingEveryRoute() {
+        var simulator = new RoutingSimulator(ROUTES);
+        var random = new Random(7);
+        var values = List.of("cars", "stage", "vendor", "person", "cars#stage/vendor", "cars/vendor#stage");
+        var fields = List.of("emxSourceSystem", "emxSourceEnvironment", "emxDatatype", "endpoint");
+        for (int i = 0; i < 2_000; i++) {
+            Map<String, String> headers = new HashMap<>();
+            for (var field : fields) {
+                if (random.nextBoolean()) {
+                    headers.put(field, values.get(random.nextInt(values.size())));
+                }
+            }
+            List<String> expected = new ArrayList<>();
+            for (var route : ROUTES.routes().subList(0, 5)) {
+                if (route.enabled() && CompiledRule.of(route.rule()).matches(headers)) {
+                    expected.add(route.uuid());
+                }
+            }
+            assertThat(simulator.match(headers)).extracting(Route::uuid).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void replaysMessagesFromFile() throws IOException {
+        var messages = folder.newFile("messages.ndjson").toPath();
+        var results = folder.getRoot().toPath().resolve("results.ndjson");
+        Files.writeString(messages, """
+                {"emxSourceSystem":"cars","emxSourceEnvironment":"stage","emxDatatype":"vendor"}
+                {"emxDatatype":"vendor"}
+                """);
+
+        long count = new RoutingSimulator(ROUTES).replay(MAPPER, messages, results);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(Files.readAllLines(results)).containsExactly(
+                "{\"routes\":[\"1\",\"5\"],\"queues\":[\"scms#stage\"]}",
+                "{\"routes\":[],\"queues\":[]}");
+    }
+
+}
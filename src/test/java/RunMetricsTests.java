@@ -0,0 +1,68 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class RunMetricsTests {
+
+    @Test
+    public void percentilesAreWithinThreePercent() {
+        var histogram = new LatencyHistogram();
+        var random = new Random(21);
+        List<Long> latencies = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            long latency = (long) (Math.exp(random.nextGaussian() * 2 + 14));
+            latencies.add(latency);
+            histogram.record(latency);
+        }
+        latencies.sort(null);
+
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat(histogram.maxNanos()).isEqualTo(latencies.get(latencies.size() - 1));
+        for (var percentile : List.of(50, 90, 99)) {
+            double exact = latencies.get(latencies.size() * percentile / 100 - 1);
+            assertThat((double) histogram.percentileNanos(percentile)).isCloseTo(exact, within(exact * 0.03));
+        }
+        assertThat(new LatencyHistogram().percentileNanos(99)).isZero();
+    }
+
+    @Test
+    public void countsEveryUpdateRequestAndRoute() throws IOException {
+        var metrics = new RunMetrics("dev");
+        try (var server = MockRouteManager.start(true, Duration.ZERO)) {
+            var updater = new RouteUpdater(server.client(2),
+                    new RouteUpdater.Options(null, 10, metrics, null));
+            var transform = metrics.timed(RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN);
+            var routes = metrics.timed(Stream.of("uuid1", "uuid2", "bad")
+                    .map(uuid -> TestRoutes.route(uuid, TestRoutes.RULE, "cars#stage/vendor"))
+                    .iterator());
+            while (routes.hasNext()) {
+                var route = routes.next();
+                var change = new RouteChange(route, transform.apply(route));
+                metrics.transformed(change.changed());
+                updater.submit(change);
+            }
+            updater.finish();
+        }
+
+        var summary = metrics.summary(JsonMapper.builder().build());
+        assertThat(summary.path("lane").asText()).isEqualTo("dev");
+        assertThat(summary.path("routes").toString())
+                .isEqualTo("{\"fetched\":3,\"changed\":3,\"unchanged\":0,\"updated\":2,\"failed\":1}");
+        assertThat(summary.path("stages").path("read").path("count").asLong()).isEqualTo(3);
+        assertThat(summary.path("stages").path("transform").path("count").asLong()).isEqualTo(3);
+        assertThat(summary.path("stages").path("update").path("count").asLong()).isEqualTo(1);
+        assertThat(summary.path("stages").path("update").path("p99Millis").asDouble())
+                .isLessThanOrEqualTo(summary.path("stages").path("update").path("maxMillis").asDouble());
+        assertThat(metrics.progress()).startsWith("3 routes read, 3 changed, 2 updated, 1 failed, ");
+    }
+
+}
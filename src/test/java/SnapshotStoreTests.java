@@ -0,0 +1,135 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnapshotStoreTests {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void syncAppendsOnlyWhatChanged() throws IOException {
+        var file = folder.getRoot().toPath().resolve("snapshot.ndjson");
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            var result = store.sync(List.of(route("1", "a", "2023-03-28"), route("2", "b", "2023-03-28")).iterator());
+            assertThat(result).isEqualTo(new SnapshotStore.SyncResult(2, 0, 0, 0));
+        }
+
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            assertThat(store.size()).isEqualTo(2);
+            assertThat(store.watermark()).contains("2023-03-28");
+
+            var result = store.sync(List.of(route("1", "a", "2023-03-28"), route("3", "c", "2023-04-01")).iterator());
+
+            assertThat(result).isEqualTo(new SnapshotStore.SyncResult(1, 0, 1, 1));
+            assertThat(store.modifiedAfter("2023-03-28")).extracting(Route::uuid).containsExactly("3");
+        }
+        assertThat(Files.readAllLines(file)).hasSize(4);
+
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            assertThat(store.routes()).extracting(Route::uuid).containsExactly("1", "3");
+            assertThat(store.get("2")).isEmpty();
+            assertThat(store.watermark()).contains("2023-04-01");
+
+            var result = store.sync(List.of(route("1", "changed", "2023-03-28"), route("3", "c", "2023-04-01")).iterator());
+            assertThat(result).isEqualTo(new SnapshotStore.SyncResult(0, 1, 0, 1));
+            assertThat(store.get("1")).hasValueSatisfying(route -> assertThat(route.rule()).isEqualTo("changed"));
+        }
+    }
+
+    @Test
+    public void compactKeepsOnlyCurrentRoutes() throws IOException {
+        var file = folder.getRoot().toPath().resolve("snapshot.ndjson");
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            store.put(route("1", "a", "2023-03-28"));
+            store.put(route("1", "b", "2023-03-29"));
+            store.put(route("2", "c", "2023-03-29"));
+            store.remove("2");
+            store.compact();
+            store.put(route("3", "d", "2023-03-30"));
+        }
+
+        assertThat(Files.readAllLines(file)).hasSize(2);
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            assertThat(store.toRoutesList().routes()).extracting(Route::rule).containsExactly("b", "d");
+        }
+    }
+
+    @Test
+    public void compactIfStaleWaitsForMoreStaleLinesThanRoutes() throws IOException {
+        var file = folder.getRoot().toPath().resolve("snapshot.ndjson");
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            store.sync(List.of(route("1", "a", "2023-03-28"), route("2", "b", "2023-03-28")).iterator());
+            store.sync(List.of(route("1", "c", "2023-03-29"), route("2", "d", "2023-03-29")).iterator());
+            assertThat(store.staleLines()).isEqualTo(2);
+            assertThat(store.compactIfStale()).isFalse();
+
+            store.sync(List.of(route("1", "e", "2023-03-30")).iterator());
+            assertThat(store.staleLines()).isEqualTo(5);
+            assertThat(store.compactIfStale()).isTrue();
+            assertThat(store.staleLines()).isZero();
+        }
+
+        assertThat(Files.readAllLines(file)).hasSize(1);
+        try (var store = SnapshotStore.open(MAPPER, file)) {
+            assertThat(store.routes()).extracting(Route::rule).containsExactly("e");
+            assertThat(store.staleLines()).isZero();
+        }
+    }
+
+    @Test
+    public void conversionsAndRevertsWriteTheRoutesTheyApply() throws IOException {
+        var directory = folder.getRoot().toPath();
+        var lane = new Lane("dev", "dev", "http://localhost", "user:password", 1000, 2, 1, directory);
+        List<Route> originals = new ArrayList<>();
+        for (var uuid : List.of("uuid1", "uuid2", "bad")) {
+            originals.add(TestRoutes.route(uuid, TestRoutes.RULE, "cars#stage/vendor"));
+        }
+        try (var store = SnapshotStore.open(MAPPER, lane.file("RoutesSnapshot", ".ndjson"))) {
+            store.sync(originals.iterator());
+        }
+        var out = new PrintStream(new ByteArrayOutputStream());
+
+        try (var server = MockRouteManager.start(true, Duration.ZERO)) {
+            server.addRoutes(originals);
+            RouteTransform retarget = route -> TestRoutes.route(route.uuid(), route.rule(), "cfis#stage");
+            Main.runConversion(lane, server.client(1), out, List.of(retarget), "convert-test", ParallelTransform.DEFAULT,
+                    AuditLog.Options.DEFAULT, null);
+            try (var store = SnapshotStore.open(MAPPER, lane.file("RoutesSnapshot", ".ndjson"))) {
+                var index = EndpointIndex.of(store.routes().iterator(), lane.queueEnvironment());
+                assertThat(index.routesTo("cfis#stage")).containsExactly("uuid1", "uuid2");
+                assertThat(index.routesTo("cars#stage/vendor")).containsExactly("bad");
+            }
+
+            var backup = RouteBackupWriter.create(MAPPER, directory, "OriginalRoutes-test");
+            try (backup) {
+                backup.write(originals.get(0));
+            }
+            Main.revert(lane, server.client(1), out, backup.file(), route -> route, null, "revert-test",
+                    AuditLog.Options.DEFAULT, null);
+        }
+        try (var store = SnapshotStore.open(MAPPER, lane.file("RoutesSnapshot", ".ndjson"))) {
+            assertThat(store.get("uuid1")).contains(originals.get(0));
+            assertThat(store.get("uuid2").orElseThrow().queues()).containsExactly("cfis#stage");
+        }
+    }
+
+    private static Route route(String uuid, String rule, String modifiedDate) {
+        return TestRoutes.modified(TestRoutes.route(uuid, rule, TestRoutes.QUEUE), modifiedDate);
+    }
+
+}
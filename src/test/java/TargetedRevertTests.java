@@ -0,0 +1,116 @@
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TargetedRevertTests {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().addModule(new ParameterNamesModule()).build();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final List<Route> BACKUP = List.of(
+            TestRoutes.route("uuid1", "endpoint==\"cars#stage/vendor\"", "emx-to-scms-stage"),
+            TestRoutes.route("uuid2", "endpoint==\"cars#stage/raw\"", "emx-to-scms-stage"),
+            TestRoutes.route("uuid3", "endpoint==\"boats#stage/raw\"", "emx-to-scms-stage"),
+            TestRoutes.route("uuid4", "endpoint==\"bikes#stage/raw\"", "emx-to-scms-stage"));
+
+    @Test
+    public void restoresOnlyRoutesThatDifferFromTheLiveTable() {
+        var live = List.of(
+                BACKUP.get(0),
+                TestRoutes.route("uuid2", "endpoint==\"cars#stage/raw\"", "scms#stage"),
+                TestRoutes.route("uuid3", "endpoint==\"boats/raw#stage\"", "emx-to-scms-stage"));
+        var revert = TargetedRevert.againstLive(live.iterator());
+        List<Route> restored = new ArrayList<>();
+
+        revert.restore(BACKUP.iterator(), route -> route, restored::add);
+
+        assertThat(restored).containsExactly(BACKUP.get(1), BACKUP.get(2));
+        assertThat(revert.summary()).isEqualTo("Restoring 2 routes, 1 already match the backup, 1 no longer exist.");
+    }
+
+    @Test
+    public void restoresOnlyRoutesTheJournalRecordsAsApplied() throws IOException {
+        var file = folder.getRoot().toPath().resolve("progress.journal");
+        Files.writeString(file, "uuid2\nuuid4\n");
+        List<Route> restored = new ArrayList<>();
+
+        try (var journal = ProgressJournal.open(file, 1)) {
+            var revert = TargetedRevert.againstJournal(journal);
+            revert.restore(BACKUP.iterator(), RouteTransforms.SWITCH_TARGETS_TO_QUALIFIER_PATTERN, restored::add);
+
+            assertThat(revert.restored()).isEqualTo(2);
+            assertThat(revert.summary()).isEqualTo("Restoring 2 routes, 2 were not applied by the run.");
+        }
+        assertThat(restored).extracting(Route::uuid).containsExactly("uuid2", "uuid4");
+    }
+
+    @Test
+    public void appliedRevertRetiresTheConversionJournal() throws IOException {
+        var directory = folder.getRoot().toPath();
+        var lane = lane(directory);
+        var journal = directory.resolve("ConversionProgress-dev-convertQueuesToEndpoints-3f2a9c1e7b4d.journal");
+        Files.writeString(journal, "# run convertQueuesToEndpoints-3f2a9c1e7b4d\nuuid2\nuuid4\n");
+        var output = new ByteArrayOutputStream();
+
+        try (var server = MockRouteManager.start(true, Duration.ZERO)) {
+            Main.revert(lane, server.client(2), new PrintStream(output, true, StandardCharsets.UTF_8), backup(directory),
+                    route -> route, journal, "revert-test", AuditLog.Options.DEFAULT, null);
+
+            assertThat(server.updated()).containsExactlyInAnyOrder("uuid2", "uuid4");
+        }
+        assertThat(journal).doesNotExist();
+        assertThat(directory.resolve(journal.getFileName() + ".reverted")).hasContent(
+                "# run convertQueuesToEndpoints-3f2a9c1e7b4d\nuuid2\nuuid4");
+        assertThat(output.toString(StandardCharsets.UTF_8)).contains("so the next conversion sends every route again");
+    }
+
+    @Test
+    public void appliedRevertWithoutJournalFails() throws IOException {
+        var directory = folder.getRoot().toPath();
+        var lane = lane(directory);
+        var backup = backup(directory);
+        var journal = directory.resolve("ConversionProgress-dev-convertQueuesToEndpoints-3f2a9c1e7b4d.journal");
+
+        try (var server = MockRouteManager.start(true, Duration.ZERO)) {
+            assertThatThrownBy(() -> Main.revert(lane, server.client(2), new PrintStream(new ByteArrayOutputStream()),
+                    backup, route -> route, journal, "revert-test", AuditLog.Options.DEFAULT, null))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("There is no journal");
+
+            assertThat(server.updated()).isEmpty();
+        }
+        assertThat(journal).doesNotExist();
+    }
+
+    private static Lane lane(Path directory) {
+        return new Lane("dev", "dev", "http://localhost", "user:password", 1000, 2, 1, directory);
+    }
+
+    private static Path backup(Path directory) throws IOException {
+        var writer = RouteBackupWriter.create(MAPPER, directory, "OriginalRoutes-dev");
+        try (writer) {
+            for (var route : BACKUP) {
+                writer.write(route);
+            }
+        }
+        return writer.file();
+    }
+
+}
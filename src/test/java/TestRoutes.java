@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes for tests. Unless a test says otherwise a route is enabled, named after its uuid, and
+ * delivers messages from cars#stage to scms#stage.
+ */
+final class TestRoutes {
+
+    static final String RULE = "endpoint==\"cars#stage\"";
+    static final String QUEUE = "scms#stage";
+    static final String DATE = "2023-03-28";
+
+    private TestRoutes() {
+    }
+
+    static Route route(String uuid) {
+        return route(uuid, RULE, QUEUE);
+    }
+
+    static Route route(String uuid, String rule, String... queues) {
+        return route(uuid, rule, true, queues);
+    }
+
+    static Route route(String uuid, String rule, boolean enabled, String... queues) {
+        return new Route(uuid, "route" + uuid, rule, "", enabled, List.of(queues), DATE, DATE);
+    }
+
+    /**
+     * The route as the route manager returns it after an update on modifiedDate.
+     */
+    static Route modified(Route route, String modifiedDate) {
+        return new Route(route.uuid(), route.name(), route.rule(), route.description(), route.enabled(),
+                route.queues(), route.createdDate(), modifiedDate);
+    }
+
+    /**
+     * Routes prefix0 up to prefix{count - 1}.
+     */
+    static List<Route> routes(String prefix, int count) {
+        List<Route> routes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            routes.add(route(prefix + i));
+        }
+        return routes;
+    }
+
+}